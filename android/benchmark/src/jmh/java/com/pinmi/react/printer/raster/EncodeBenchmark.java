@@ -0,0 +1,74 @@
+package com.pinmi.react.printer.raster;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ESC/POS command generation from an already binarized image, per printer
+ * width and image encoding. The pixels counter gives throughput in pixels per
+ * second; its inverse is the time per pixel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodeBenchmark {
+    @Param({"384", "576", "832"})
+    public int width;
+
+    @Param({"ESC_BIT_IMAGE_8", "ESC_BIT_IMAGE_24", "RASTER", "GRAPHICS", "STAR_RASTER"})
+    public String encoding;
+
+    @Param({"true", "false"})
+    public boolean trimWhitespace;
+
+    private ImageEncoding imageEncoding;
+    private MonochromeBitmap image;
+    private ReceiptImages.CountingOutputStream out;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long pixels;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            pixels = 0;
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        imageEncoding = ImageEncoding.valueOf(encoding);
+        image = RasterPipeline.binarize(ReceiptImages.pixels(width), width, ReceiptImages.HEIGHT, DitherMode.NONE,
+                ImageDither.DEFAULT_THRESHOLD);
+        out = new ReceiptImages.CountingOutputStream();
+    }
+
+    @Benchmark
+    public long encode(Counters counters) throws IOException {
+        out.count = 0;
+        EscPosImageEncoder.encode(image, imageEncoding, trimWhitespace, out);
+        counters.pixels += (long) width * ReceiptImages.HEIGHT;
+        counters.bytes += out.count;
+        return out.count;
+    }
+}
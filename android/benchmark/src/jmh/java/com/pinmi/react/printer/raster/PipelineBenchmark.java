@@ -0,0 +1,75 @@
+package com.pinmi.react.printer.raster;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole pixel-to-command path the adapters run after decoding: ARGB
+ * pixels are binarized with each dither mode and encoded with the default
+ * ESC * 24-dot stripes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelineBenchmark {
+    @Param({"384", "576", "832"})
+    public int width;
+
+    @Param({"NONE", "FLOYD_STEINBERG", "ATKINSON", "BAYER_8X8"})
+    public String ditherMode;
+
+    @Param({"127", "-1"})
+    public int threshold;
+
+    private DitherMode mode;
+    private int[] source;
+    private int[] pixels;
+    private ReceiptImages.CountingOutputStream out;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long pixels;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            pixels = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        mode = DitherMode.valueOf(ditherMode);
+        source = ReceiptImages.pixels(width);
+        pixels = new int[source.length];
+        out = new ReceiptImages.CountingOutputStream();
+    }
+
+    @Benchmark
+    public long pipeline(Counters counters) throws IOException {
+        // The automatic threshold converts the buffer to gray in place, so every run starts from the source.
+        System.arraycopy(source, 0, pixels, 0, source.length);
+        out.count = 0;
+        RasterPipeline.encode(pixels, width, ReceiptImages.HEIGHT, mode, threshold, ImageEncoding.ESC_BIT_IMAGE_24,
+                true, out);
+        counters.pixels += (long) width * ReceiptImages.HEIGHT;
+        return out.count;
+    }
+}
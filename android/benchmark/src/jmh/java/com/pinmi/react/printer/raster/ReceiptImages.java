@@ -0,0 +1,51 @@
+package com.pinmi.react.printer.raster;
+
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Deterministic receipt-like test images and a sink that only counts bytes.
+ */
+final class ReceiptImages {
+    static final int HEIGHT = 1024;
+
+    private ReceiptImages() {
+    }
+
+    /**
+     * A gray gradient logo on top, then lines of "text" blocks separated by
+     * blank rows, like a rendered receipt.
+     */
+    static int[] pixels(int width) {
+        int[] pixels = new int[width * HEIGHT];
+        Random random = new Random(width);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < width; x++) {
+                int luma;
+                if (y < 256) {
+                    luma = (x * 255 / width + y) & 0xff;
+                } else if ((y % 32) < 24 && x > width / 16 && x < width - width / 16) {
+                    luma = random.nextInt(4) == 0 ? 0 : 255;
+                } else {
+                    luma = 255;
+                }
+                pixels[y * width + x] = 0xff000000 | luma * 0x010101;
+            }
+        }
+        return pixels;
+    }
+
+    static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.pinmi.react.printer.raster;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downscaling a decoded image to print width and binarizing it, as
+ * UtilsImage does before encoding. Source rows are copied out of an int
+ * array the way Bitmap.getPixels hands them over on a device.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResampleBenchmark {
+    @Param({"384", "576"})
+    public int width;
+
+    @Param({"2", "3", "4"})
+    public int factor;
+
+    private int[] source;
+    private int sourceWidth;
+    private int targetHeight;
+    private int[] pixels;
+    private ImageResampler.RowSource rows;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long pixels;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            pixels = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        sourceWidth = width * factor;
+        source = ReceiptImages.pixels(sourceWidth);
+        targetHeight = ReceiptImages.HEIGHT / factor;
+        pixels = new int[width * targetHeight];
+        rows = new ImageResampler.RowSource() {
+            @Override
+            public void readRows(int top, int count, int[] into) {
+                System.arraycopy(source, top * sourceWidth, into, 0, count * sourceWidth);
+            }
+        };
+    }
+
+    @Benchmark
+    public MonochromeBitmap resampleAndBinarize(Counters counters) {
+        int[] histogram = new int[256];
+        ImageResampler.resample(rows, sourceWidth, ReceiptImages.HEIGHT, width, targetHeight, pixels, histogram);
+        counters.pixels += (long) sourceWidth * ReceiptImages.HEIGHT;
+        return RasterPipeline.binarizeGray(pixels, width, targetHeight, DitherMode.NONE,
+                ImageDither.DEFAULT_THRESHOLD, histogram);
+    }
+}
@@ -1,17 +1,34 @@
 package com.pinmi.react.printer;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.util.Base64;
 import android.util.Log;
 
 import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.pinmi.react.printer.adapter.DiskImageCache;
+import com.pinmi.react.printer.adapter.EncodedImageCache;
+import com.pinmi.react.printer.adapter.ImageOptions;
+import com.pinmi.react.printer.adapter.MarkupOptions;
 import com.pinmi.react.printer.adapter.NetPrinterAdapter;
 import com.pinmi.react.printer.adapter.NetPrinterDeviceId;
 import com.pinmi.react.printer.adapter.PrinterAdapter;
+import com.pinmi.react.printer.adapter.PrinterCapabilities;
+import com.pinmi.react.printer.adapter.TemplateOptions;
+import com.pinmi.react.printer.adapter.TextImageRenderer;
+import com.pinmi.react.printer.adapter.TextStyle;
+import com.pinmi.react.printer.command.BarcodeCommand;
+import com.pinmi.react.printer.command.BarcodeSymbology;
+import com.pinmi.react.printer.command.MarkupCompiler;
+import com.pinmi.react.printer.command.QRCodeCommand;
+import com.pinmi.react.printer.command.TemplateRegistry;
+import com.pinmi.react.printer.raster.ImageEncoding;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by xiesubin on 2017/9/22.
@@ -70,7 +87,7 @@ public class RNNetPrinterModule extends ReactContextBaseJavaModule implements RN
     @Override
     public void printImageData(String imageUrl, int imageWidth, int imageHeight, Callback errorCallback) {
         Log.v("imageUrl", imageUrl);
-        adapter.printImageData(imageUrl, imageWidth, imageHeight, errorCallback);
+        adapter.printImageData(imageUrl, new ImageOptions(imageWidth, imageHeight), errorCallback);
     }
 
     @ReactMethod
@@ -78,9 +95,227 @@ public class RNNetPrinterModule extends ReactContextBaseJavaModule implements RN
     public void printImageBase64(String base64, int imageWidth, int imageHeight, Callback errorCallback) {
         // String imageBase64 = "data:image/png;base64," + imageUrl;
         // String base64ImageProcessed = imageUrl.split(",")[1];
-        byte[] decodedString = Base64.decode(base64, Base64.DEFAULT);
-        Bitmap decodedByte = BitmapFactory.decodeByteArray(decodedString, 0, decodedString.length);
-        adapter.printImageBase64(decodedByte, imageWidth, imageHeight, errorCallback);
+        adapter.printImageBase64(base64, new ImageOptions(imageWidth, imageHeight), errorCallback);
+    }
+
+    @ReactMethod
+    @Override
+    public void printImageDataWithOptions(String imageUrl, ReadableMap options, Callback errorCallback) {
+        ImageOptions imageOptions;
+        try {
+            imageOptions = ImageOptions.fromReadableMap(options);
+        } catch (IllegalArgumentException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        adapter.printImageData(imageUrl, imageOptions, errorCallback);
+    }
+
+    @ReactMethod
+    @Override
+    public void printImageBase64WithOptions(String base64, ReadableMap options, Callback errorCallback) {
+        ImageOptions imageOptions;
+        try {
+            imageOptions = ImageOptions.fromReadableMap(options);
+        } catch (IllegalArgumentException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        adapter.printImageBase64(base64, imageOptions, errorCallback);
+    }
+
+    @ReactMethod
+    @Override
+    public void getImageCacheStats(Callback successCallback) {
+        successCallback.invoke(EncodedImageCache.getInstance().getStats());
+    }
+
+    @ReactMethod
+    @Override
+    public void clearImageCache() {
+        EncodedImageCache.getInstance().clear();
+        TextImageRenderer.getInstance().clear();
+        if (DiskImageCache.getInstance() != null) {
+            DiskImageCache.getInstance().clear();
+        }
+    }
+
+    @ReactMethod
+    @Override
+    public void prefetchImages(final ReadableArray imageUrls, int imageWidth, int imageHeight,
+                               final Callback successCallback, final Callback errorCallback) {
+        if (this.adapter == null) {
+            errorCallback.invoke("printer module is not initialized, may be you forgot to init");
+            return;
+        }
+        final PrinterAdapter printerAdapter = this.adapter;
+        final ImageOptions options = new ImageOptions(imageWidth, imageHeight);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                List<String> failed = new ArrayList<>();
+                for (int i = 0; i < imageUrls.size(); i++) {
+                    String imageUrl = imageUrls.getString(i);
+                    try {
+                        if (!printerAdapter.prefetchImageData(imageUrl, options)) {
+                            failed.add(imageUrl);
+                        }
+                    } catch (IOException e) {
+                        Log.w(getName(), "failed to prefetch " + imageUrl, e);
+                        failed.add(imageUrl);
+                    }
+                }
+                if (failed.isEmpty()) {
+                    successCallback.invoke(imageUrls.size());
+                } else {
+                    errorCallback.invoke("failed to prefetch images: " + failed);
+                }
+            }
+        }).start();
+    }
+
+    @ReactMethod
+    public void setImageEncoding(String host, Integer port, String encoding, Callback errorCallback) {
+        if (this.adapter == null) {
+            errorCallback.invoke("printer module is not initialized, may be you forgot to init");
+            return;
+        }
+        try {
+            adapter.setImageEncoding(NetPrinterDeviceId.valueOf(host, port), ImageEncoding.fromName(encoding));
+        } catch (IllegalArgumentException e) {
+            errorCallback.invoke(e.getMessage());
+        }
+    }
+
+    /**
+     * Describes the native commands of the given printer, e.g. {qrCode: false,
+     * barcodes: ["CODE128", "EAN13"]}. Anything else is rasterized.
+     */
+    @ReactMethod
+    public void setPrinterCapabilities(String host, Integer port, ReadableMap capabilities, Callback errorCallback) {
+        if (this.adapter == null) {
+            errorCallback.invoke("printer module is not initialized, may be you forgot to init");
+            return;
+        }
+        try {
+            adapter.setPrinterCapabilities(NetPrinterDeviceId.valueOf(host, port), PrinterCapabilities.fromReadableMap(capabilities));
+        } catch (IllegalArgumentException e) {
+            errorCallback.invoke(e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    @Override
+    public void printQRCode(String data, int size, String errorLevel, int model, Callback errorCallback) {
+        if (this.adapter == null) {
+            errorCallback.invoke("printer module is not initialized, may be you forgot to init");
+            return;
+        }
+        QRCodeCommand qrCode;
+        try {
+            qrCode = new QRCodeCommand(data, size, errorLevel, model);
+        } catch (IllegalArgumentException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        adapter.printQRCode(qrCode, errorCallback);
+    }
+
+    @ReactMethod
+    @Override
+    public void printBarcode(String data, String symbology, int height, int width, String hriPosition,
+                             Callback errorCallback) {
+        if (this.adapter == null) {
+            errorCallback.invoke("printer module is not initialized, may be you forgot to init");
+            return;
+        }
+        BarcodeCommand barcode;
+        try {
+            barcode = new BarcodeCommand(data, BarcodeSymbology.fromName(symbology), height, width, hriPosition);
+        } catch (IllegalArgumentException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        adapter.printBarcode(barcode, errorCallback);
+    }
+
+    @ReactMethod
+    @Override
+    public void printTextAsImage(String text, ReadableMap fontSpec, int width, Callback errorCallback) {
+        if (this.adapter == null) {
+            errorCallback.invoke("printer module is not initialized, may be you forgot to init");
+            return;
+        }
+        if (text == null) {
+            errorCallback.invoke("text is missing");
+            return;
+        }
+        TextStyle style;
+        try {
+            style = TextStyle.fromReadableMap(fontSpec);
+        } catch (IllegalArgumentException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        adapter.printTextAsImage(text, style, width, errorCallback);
+    }
+
+    @ReactMethod
+    @Override
+    public void registerTemplate(String templateId, String template, ReadableMap options, Callback errorCallback) {
+        try {
+            TemplateRegistry.getInstance().register(templateId, TemplateOptions.compile(template, options));
+        } catch (IllegalArgumentException e) {
+            errorCallback.invoke(e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    @Override
+    public void printTemplate(String templateId, ReadableMap data, Callback errorCallback) {
+        if (this.adapter == null) {
+            errorCallback.invoke("printer module is not initialized, may be you forgot to init");
+            return;
+        }
+        byte[] payload;
+        try {
+            payload = TemplateRegistry.getInstance().get(templateId).render(data != null ? data.toHashMap() : null);
+        } catch (IllegalArgumentException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        adapter.printPayload(payload, errorCallback);
+    }
+
+    @ReactMethod
+    @Override
+    public void printMarkup(String text, ReadableMap options, Callback errorCallback) {
+        if (this.adapter == null) {
+            errorCallback.invoke("printer module is not initialized, may be you forgot to init");
+            return;
+        }
+        if (text == null) {
+            errorCallback.invoke("text is missing");
+            return;
+        }
+        MarkupCompiler compiler;
+        try {
+            compiler = MarkupOptions.compiler(options);
+        } catch (IllegalArgumentException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        adapter.printMarkup(text, compiler, errorCallback);
+    }
+
+    @ReactMethod
+    @Override
+    public void printLogo(String key, Callback errorCallback) {
+        if (this.adapter == null) {
+            errorCallback.invoke("printer module is not initialized, may be you forgot to init");
+            return;
+        }
+        adapter.printLogo(key, errorCallback);
     }
 
     @Override
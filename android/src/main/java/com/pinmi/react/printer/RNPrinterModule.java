@@ -1,6 +1,8 @@
 package com.pinmi.react.printer;
 import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
 
 /**
  * Created by xiesubin on 2017/9/21.
@@ -22,5 +24,43 @@ public interface RNPrinterModule {
 
     @ReactMethod
     public void printImageBase64(String base64, int imageWidth, int imageHeight, Callback errorCallback) ;
+
+    @ReactMethod
+    public void printImageDataWithOptions(String imageUrl, ReadableMap options, Callback errorCallback);
+
+    @ReactMethod
+    public void printImageBase64WithOptions(String base64, ReadableMap options, Callback errorCallback);
+
+    @ReactMethod
+    public void getImageCacheStats(Callback successCallback);
+
+    @ReactMethod
+    public void clearImageCache();
+
+    @ReactMethod
+    public void prefetchImages(ReadableArray imageUrls, int imageWidth, int imageHeight,
+                               Callback successCallback, Callback errorCallback);
+
+    @ReactMethod
+    public void printQRCode(String data, int size, String errorLevel, int model, Callback errorCallback);
+
+    @ReactMethod
+    public void printBarcode(String data, String symbology, int height, int width, String hriPosition,
+                             Callback errorCallback);
+
+    @ReactMethod
+    public void printTextAsImage(String text, ReadableMap fontSpec, int width, Callback errorCallback);
+
+    @ReactMethod
+    public void registerTemplate(String templateId, String template, ReadableMap options, Callback errorCallback);
+
+    @ReactMethod
+    public void printTemplate(String templateId, ReadableMap data, Callback errorCallback);
+
+    @ReactMethod
+    public void printMarkup(String text, ReadableMap options, Callback errorCallback);
+
+    @ReactMethod
+    public void printLogo(String key, Callback errorCallback);
 }
 
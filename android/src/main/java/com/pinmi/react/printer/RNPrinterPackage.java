@@ -4,6 +4,9 @@ import com.facebook.react.ReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.uimanager.ViewManager;
+import com.pinmi.react.printer.adapter.DiskImageCache;
+import com.pinmi.react.printer.adapter.EncodedImageCache;
+import com.pinmi.react.printer.adapter.StoredLogos;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -16,6 +19,9 @@ import java.util.List;
 public class RNPrinterPackage implements ReactPackage {
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
+        EncodedImageCache.getInstance().registerComponentCallbacks(reactContext);
+        DiskImageCache.init(reactContext);
+        StoredLogos.init(reactContext);
         return Arrays.asList(new NativeModule[]{
                 new RNUSBPrinterModule(reactContext),
                 new RNBLEPrinterModule(reactContext),
@@ -23,7 +23,6 @@ public class BLEPrinterDeviceId extends PrinterDeviceId {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
 
         BLEPrinterDeviceId that = (BLEPrinterDeviceId) o;
 
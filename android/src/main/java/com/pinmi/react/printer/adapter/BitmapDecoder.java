@@ -0,0 +1,75 @@
+package com.pinmi.react.printer.adapter;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+/**
+ * Decodes images close to print size: the bounds are read first, whole
+ * powers of two are skipped with inSampleSize, and JPEGs (which carry no
+ * alpha) decode into RGB_565 at half the memory of ARGB_8888.
+ */
+public class BitmapDecoder {
+
+    private BitmapDecoder() {
+    }
+
+    /**
+     * A decoded bitmap and the size it prints at. The print size comes from
+     * the bounds of the encoded image, so it does not depend on inSampleSize.
+     */
+    public static class Decoded {
+        final Bitmap bitmap;
+        final int width;
+        final int height;
+
+        Decoded(Bitmap bitmap, int width, int height) {
+            this.bitmap = bitmap;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * Decodes the image at the largest power-of-two reduction that still
+     * covers the print size; {@link UtilsImage#getMonochromeBitmap} scales
+     * the rest of the way. A target dimension of 0 keeps the source dimension.
+     */
+    public static Decoded decode(byte[] data, int targetWidth, int targetHeight) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            return null;
+        }
+        int width = printSize(targetWidth, bounds.outWidth);
+        int height = printSize(targetHeight, bounds.outHeight);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, width, height);
+        options.inPreferredConfig = preferredConfig(bounds.outMimeType);
+        Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        return bitmap == null ? null : new Decoded(bitmap, width, height);
+    }
+
+    // The requested dimension, or the source dimension when none is requested; shared with streaming.
+    static int printSize(int requested, int source) {
+        return requested > 0 ? requested : source;
+    }
+
+    static Bitmap.Config preferredConfig(String mimeType) {
+        return "image/jpeg".equals(mimeType) ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    }
+
+    // Largest power of two that keeps every requested dimension at or above its target.
+    static int sampleSize(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 && targetHeight <= 0) {
+            return 1;
+        }
+        int sampleSize = 1;
+        while ((targetWidth <= 0 || sourceWidth / (sampleSize * 2) >= targetWidth)
+                && (targetHeight <= 0 || sourceHeight / (sampleSize * 2) >= targetHeight)) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
@@ -0,0 +1,30 @@
+package com.pinmi.react.printer.adapter;
+
+/**
+ * An encoded image together with the validators of the download it was
+ * made from. Base64 sources are addressed by content and carry none.
+ */
+class CachedPayload {
+    // URL payloads are used without asking the server for this long after a check.
+    static final long FRESH_MILLIS = 5 * 60 * 1000;
+
+    final byte[] payload;
+    final String etag;
+    final String lastModified;
+    final long checkedAt;
+
+    CachedPayload(byte[] payload, String etag, String lastModified, long checkedAt) {
+        this.payload = payload;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.checkedAt = checkedAt;
+    }
+
+    boolean isFresh(long now) {
+        return now - checkedAt >= 0 && now - checkedAt < FRESH_MILLIS;
+    }
+
+    CachedPayload checkedAt(long now) {
+        return new CachedPayload(payload, etag, lastModified, now);
+    }
+}
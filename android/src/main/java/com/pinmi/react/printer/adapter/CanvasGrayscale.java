@@ -0,0 +1,85 @@
+package com.pinmi.react.printer.adapter;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import com.pinmi.react.printer.raster.BandCache;
+import com.pinmi.react.printer.raster.DitherMode;
+import com.pinmi.react.printer.raster.ImageEncoding;
+import com.pinmi.react.printer.raster.MonochromeBitmap;
+import com.pinmi.react.printer.raster.RasterPipeline;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The canvasScaling path: Skia scales and desaturates the image in a single
+ * drawBitmap into an ALPHA_8 bitmap at print size, and Java only thresholds
+ * the resulting byte plane.
+ */
+public class CanvasGrayscale {
+    // Alpha becomes the ink: 255 minus the Rec. 601 luma of an opaque pixel.
+    // A transparent pixel ends up without ink, like white paper.
+    private static final float[] INK_MATRIX = {
+            0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0,
+            -0.299f, -0.587f, -0.114f, 1, 0};
+
+    private CanvasGrayscale() {
+    }
+
+    public static MonochromeBitmap binarize(Bitmap source, int imageWidth, int imageHeight, DitherMode ditherMode,
+                                            int threshold) {
+        int width = imageWidth > 0 ? imageWidth : source.getWidth();
+        int height = imageHeight > 0 ? imageHeight : source.getHeight();
+        MonochromeBitmap result = new MonochromeBitmap(width, height);
+        binarize(source, width, height, ditherMode, threshold, result);
+        return result;
+    }
+
+    /**
+     * Draws the source scaled to width x height and binarizes it into out.
+     */
+    static void binarize(Bitmap source, int width, int height, DitherMode ditherMode, int threshold,
+                         MonochromeBitmap out) {
+        byte[] ink = drawInk(source, width, height);
+        RasterPipeline.binarizeInk(ink, ink.length / height, width, height, ditherMode, threshold, out);
+    }
+
+    /**
+     * The reuseBands variant: the drawn ink plane becomes gray pixels for
+     * {@link RasterPipeline#encodeBands}, which keys every band by them.
+     */
+    public static void encodeBands(Bitmap source, int imageWidth, int imageHeight, DitherMode ditherMode,
+                                   int threshold, ImageEncoding encoding, boolean skipBlankRows, BandCache cache,
+                                   OutputStream out) throws IOException {
+        int width = imageWidth > 0 ? imageWidth : source.getWidth();
+        int height = imageHeight > 0 ? imageHeight : source.getHeight();
+        byte[] ink = drawInk(source, width, height);
+        int[] pixels = new int[width * height];
+        int[] histogram = new int[256];
+        RasterPipeline.inkToGray(ink, ink.length / height, width, height, pixels, histogram);
+        RasterPipeline.encodeBands(pixels, width, height, ditherMode, threshold, histogram, encoding, skipBlankRows,
+                cache, out);
+    }
+
+    // Rows of the returned plane are getRowBytes() apart, possibly more than width.
+    private static byte[] drawInk(Bitmap source, int width, int height) {
+        Bitmap target = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        try {
+            Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            paint.setColorFilter(new ColorMatrixColorFilter(INK_MATRIX));
+            new Canvas(target).drawBitmap(source, null, new Rect(0, 0, width, height), paint);
+            byte[] ink = new byte[target.getRowBytes() * height];
+            target.copyPixelsToBuffer(ByteBuffer.wrap(ink));
+            return ink;
+        } finally {
+            target.recycle();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.pinmi.react.printer.adapter;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Encoded image payloads persisted in the app's cache directory, so the first
+ * receipt after a restart does not pay for download and encoding again.
+ * Each file keeps the validators of its download next to the payload; the
+ * oldest files are dropped once the directory grows past its budget.
+ */
+public class DiskImageCache {
+    private static final String LOG_TAG = "RNPrinterDiskCache";
+    private static final String DIRECTORY = "rn-thermal-printer-images";
+    // Bump when the encoder output changes, so stale payloads are never printed.
+    private static final String FORMAT_VERSION = "7";
+    private static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+    private static final String SUFFIX = ".bin";
+    // Files being written; never counted as entries.
+    private static final FileFilter ENTRIES = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return file.getName().endsWith(SUFFIX);
+        }
+    };
+
+    private static DiskImageCache mInstance;
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+
+    DiskImageCache(File directory, long maxBytes) {
+        this.mDirectory = directory;
+        this.mMaxBytes = maxBytes;
+    }
+
+    public static synchronized void init(Context context) {
+        if (mInstance == null) {
+            File directory = new File(context.getApplicationContext().getCacheDir(), DIRECTORY);
+            mInstance = new DiskImageCache(directory, DEFAULT_MAX_BYTES);
+        }
+    }
+
+    /**
+     * @return the shared cache, or null before {@link #init(Context)}
+     */
+    public static synchronized DiskImageCache getInstance() {
+        return mInstance;
+    }
+
+    synchronized CachedPayload get(String key) {
+        File file = fileFor(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            String etag = readOptional(input);
+            String lastModified = readOptional(input);
+            long checkedAt = input.readLong();
+            byte[] payload = new byte[input.readInt()];
+            input.readFully(payload);
+            file.setLastModified(System.currentTimeMillis());
+            return new CachedPayload(payload, etag, lastModified, checkedAt);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "failed to read cached image " + file.getName(), e);
+            file.delete();
+            return null;
+        }
+    }
+
+    synchronized void put(String key, CachedPayload entry) {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.w(LOG_TAG, "unable to create " + mDirectory);
+            return;
+        }
+        File file = fileFor(key);
+        File temp = new File(mDirectory, file.getName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            DataOutputStream data = new DataOutputStream(output);
+            writeOptional(data, entry.etag);
+            writeOptional(data, entry.lastModified);
+            data.writeLong(entry.checkedAt);
+            data.writeInt(entry.payload.length);
+            data.write(entry.payload);
+            data.flush();
+            output.getFD().sync();
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "failed to write cached image " + file.getName(), e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        trimToSize();
+    }
+
+    public synchronized void clear() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    public synchronized int getEntryCount() {
+        File[] files = mDirectory.listFiles(ENTRIES);
+        return files == null ? 0 : files.length;
+    }
+
+    public synchronized long getSize() {
+        long size = 0;
+        File[] files = mDirectory.listFiles(ENTRIES);
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    private void trimToSize() {
+        File[] files = mDirectory.listFiles(ENTRIES);
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= mMaxBytes) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (size <= mMaxBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private File fileFor(String key) {
+        return new File(mDirectory, sha1(FORMAT_VERSION + '|' + key) + SUFFIX);
+    }
+
+    private static String readOptional(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void writeOptional(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    static String sha1(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.pinmi.react.printer.adapter;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.LruCache;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+import com.pinmi.react.printer.raster.BandCache;
+import com.pinmi.react.printer.raster.ImageEncoding;
+
+/**
+ * Size-bounded LRU cache of fully encoded ESC/POS image payloads, shared by
+ * all adapters, next to the cache of single encoded bands. Entries are
+ * dropped when the system asks to trim memory.
+ */
+public class EncodedImageCache {
+    private static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+    private static final int DEFAULT_MAX_BAND_BYTES = 1024 * 1024;
+
+    private static EncodedImageCache mInstance;
+
+    private final LruCache<String, CachedPayload> mCache;
+    private final BandCache mBandCache = new BandCache(DEFAULT_MAX_BAND_BYTES);
+    private boolean mCallbacksRegistered = false;
+
+    private EncodedImageCache(int maxBytes) {
+        mCache = new LruCache<String, CachedPayload>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, CachedPayload value) {
+                return value.payload.length;
+            }
+        };
+    }
+
+    public static synchronized EncodedImageCache getInstance() {
+        if (mInstance == null) {
+            mInstance = new EncodedImageCache(DEFAULT_MAX_BYTES);
+        }
+        return mInstance;
+    }
+
+    public static String keyOf(String source, ImageOptions options, ImageEncoding encoding) {
+        return source + '|' + options.getImageWidth() + 'x' + options.getImageHeight()
+                + '|' + encoding + '|' + options.getDitherMode() + '|' + options.isTrimWhitespace()
+                + '|' + options.getThreshold() + '|' + options.isCanvasScaling();
+    }
+
+    CachedPayload get(String key) {
+        return mCache.get(key);
+    }
+
+    void put(String key, CachedPayload entry) {
+        mCache.put(key, entry);
+    }
+
+    /**
+     * Encoded bands of images printed with reuseBands.
+     */
+    public BandCache getBandCache() {
+        return mBandCache;
+    }
+
+    public void clear() {
+        mCache.evictAll();
+        mBandCache.clear();
+    }
+
+    public synchronized void registerComponentCallbacks(Context context) {
+        if (mCallbacksRegistered) {
+            return;
+        }
+        context.getApplicationContext().registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                trimMemory(level);
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                clear();
+            }
+        });
+        mCallbacksRegistered = true;
+    }
+
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+            mBandCache.trimToSize(mBandCache.getMaxSize() / 2);
+        }
+    }
+
+    public WritableMap getStats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putInt("hits", mCache.hitCount());
+        stats.putInt("misses", mCache.missCount());
+        stats.putInt("evictions", mCache.evictionCount());
+        stats.putInt("entries", mCache.snapshot().size());
+        stats.putInt("size", mCache.size());
+        stats.putInt("maxSize", mCache.maxSize());
+        stats.putDouble("bandHits", mBandCache.getHits());
+        stats.putDouble("bandMisses", mBandCache.getMisses());
+        stats.putDouble("bandReuseRatio", mBandCache.getReuseRatio());
+        stats.putInt("bandEntries", mBandCache.getEntryCount());
+        stats.putInt("bandSize", mBandCache.getSize());
+        DiskImageCache diskCache = DiskImageCache.getInstance();
+        if (diskCache != null) {
+            stats.putInt("diskEntries", diskCache.getEntryCount());
+            stats.putDouble("diskSize", diskCache.getSize());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,169 @@
+package com.pinmi.react.printer.adapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Downloads image bytes for every adapter. Connections have timeouts and are
+ * always drained and closed so the platform can keep them alive; responses
+ * that carry an ETag or Last-Modified are remembered and revalidated with a
+ * conditional GET, so an unchanged image costs a 304 instead of a download.
+ */
+public class ImageFetcher {
+    private static final int CONNECT_TIMEOUT = 10 * 1000;
+    private static final int READ_TIMEOUT = 20 * 1000;
+    private static final int DEFAULT_MAX_VALIDATED_BYTES = 2 * 1024 * 1024;
+
+    private static ImageFetcher mInstance;
+
+    private final int mMaxValidatedBytes;
+    private final LinkedHashMap<String, Validated> mValidated = new LinkedHashMap<>(16, 0.75f, true);
+    private int mValidatedBytes = 0;
+
+    private static class Validated {
+        final String etag;
+        final String lastModified;
+        final byte[] body;
+
+        Validated(String etag, String lastModified, byte[] body) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+    }
+
+    ImageFetcher(int maxValidatedBytes) {
+        this.mMaxValidatedBytes = maxValidatedBytes;
+    }
+
+    public static synchronized ImageFetcher getInstance() {
+        if (mInstance == null) {
+            mInstance = new ImageFetcher(DEFAULT_MAX_VALIDATED_BYTES);
+        }
+        return mInstance;
+    }
+
+    /**
+     * A downloaded body with its validators; the body is null when the
+     * server answered that the copy the caller holds is still current.
+     */
+    public static class Response {
+        final byte[] body;
+        final String etag;
+        final String lastModified;
+
+        Response(byte[] body, String etag, String lastModified) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        boolean isNotModified() {
+            return body == null;
+        }
+    }
+
+    public byte[] fetch(String src) throws IOException {
+        Validated validated;
+        synchronized (this) {
+            validated = mValidated.get(src);
+        }
+        Response response = validated == null
+                ? fetch(src, null, null) : fetch(src, validated.etag, validated.lastModified);
+        if (response.isNotModified()) {
+            return validated.body;
+        }
+        remember(src, response.etag, response.lastModified, response.body);
+        return response.body;
+    }
+
+    /**
+     * GET, made conditional by whichever validators the caller kept from an earlier response.
+     */
+    public Response fetch(String src, String etag, String lastModified) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(src).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT);
+            connection.setReadTimeout(READ_TIMEOUT);
+            connection.setUseCaches(false);
+            connection.setDoInput(true);
+            if (etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && (etag != null || lastModified != null)) {
+                drain(connection.getErrorStream());
+                return new Response(null, etag, lastModified);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                drain(connection.getErrorStream());
+                throw new IOException("unexpected HTTP status " + status + " for " + src);
+            }
+
+            byte[] body;
+            try (InputStream input = connection.getInputStream()) {
+                body = readFully(input, connection.getContentLength());
+            }
+            return new Response(body, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+        } catch (IOException e) {
+            drain(connection.getErrorStream());
+            throw e;
+        }
+    }
+
+    private synchronized void remember(String src, String etag, String lastModified, byte[] body) {
+        Validated previous = mValidated.remove(src);
+        if (previous != null) {
+            mValidatedBytes -= previous.body.length;
+        }
+        if ((etag == null && lastModified == null) || body.length > mMaxValidatedBytes) {
+            return;
+        }
+        mValidated.put(src, new Validated(etag, lastModified, body));
+        mValidatedBytes += body.length;
+        Iterator<Map.Entry<String, Validated>> eldest = mValidated.entrySet().iterator();
+        while (mValidatedBytes > mMaxValidatedBytes && eldest.hasNext()) {
+            mValidatedBytes -= eldest.next().getValue().body.length;
+            eldest.remove();
+        }
+    }
+
+    private static byte[] readFully(InputStream input, int contentLength) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(contentLength > 0 ? contentLength : 16 * 1024);
+        byte[] buffer = new byte[8 * 1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    // Reading a response to the end lets the connection go back to the keep-alive pool.
+    private static void drain(InputStream input) {
+        if (input == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[1024];
+            while (input.read(buffer) != -1) {
+                // discard
+            }
+        } catch (IOException ignored) {
+        } finally {
+            try {
+                input.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.pinmi.react.printer.adapter;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+import com.pinmi.react.printer.raster.DitherMode;
+import com.pinmi.react.printer.raster.ImageDither;
+import com.pinmi.react.printer.raster.ImageEncoding;
+import com.pinmi.react.printer.raster.LogoStorage;
+import com.pinmi.react.printer.raster.StoredGraphics;
+
+/**
+ * Per-call image printing options. Fields left unset fall back to the
+ * defaults of the selected printer.
+ */
+public class ImageOptions {
+    private int imageWidth;
+    private int imageHeight;
+    private ImageEncoding encoding;
+    private DitherMode ditherMode = DitherMode.NONE;
+    private boolean streaming = false;
+    private boolean trimWhitespace = true;
+    private int threshold = ImageDither.DEFAULT_THRESHOLD;
+    private boolean canvasScaling = false;
+    private boolean reuseBands = false;
+    private String logoKey;
+    private LogoStorage logoStorage = LogoStorage.NV;
+
+    public ImageOptions(int imageWidth, int imageHeight) {
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+    }
+
+    public static ImageOptions fromReadableMap(ReadableMap map) {
+        ImageOptions options = new ImageOptions(0, 0);
+        if (map == null) {
+            return options;
+        }
+        if (map.hasKey("imageWidth") && !map.isNull("imageWidth")) {
+            options.imageWidth = map.getInt("imageWidth");
+        }
+        if (map.hasKey("imageHeight") && !map.isNull("imageHeight")) {
+            options.imageHeight = map.getInt("imageHeight");
+        }
+        if (map.hasKey("imageEncoding") && !map.isNull("imageEncoding")) {
+            options.encoding = ImageEncoding.fromName(map.getString("imageEncoding"));
+        }
+        if (map.hasKey("dither") && !map.isNull("dither")) {
+            options.ditherMode = DitherMode.fromName(map.getString("dither"));
+        }
+        if (map.hasKey("streaming") && !map.isNull("streaming")) {
+            options.streaming = map.getBoolean("streaming");
+        }
+        if (map.hasKey("trimWhitespace") && !map.isNull("trimWhitespace")) {
+            options.trimWhitespace = map.getBoolean("trimWhitespace");
+        }
+        if (map.hasKey("threshold") && !map.isNull("threshold")) {
+            options.threshold = parseThreshold(map);
+        }
+        if (map.hasKey("canvasScaling") && !map.isNull("canvasScaling")) {
+            options.canvasScaling = map.getBoolean("canvasScaling");
+        }
+        if (map.hasKey("reuseBands") && !map.isNull("reuseBands")) {
+            options.reuseBands = map.getBoolean("reuseBands");
+        }
+        if (map.hasKey("logoKey") && !map.isNull("logoKey")) {
+            options.logoKey = map.getString("logoKey");
+        }
+        if (map.hasKey("logoStorage") && !map.isNull("logoStorage")) {
+            options.logoStorage = LogoStorage.fromName(map.getString("logoStorage"));
+        }
+        if (options.logoKey != null && options.logoStorage != LogoStorage.LEGACY) {
+            StoredGraphics.checkKey(options.logoKey);
+        }
+        return options;
+    }
+
+    // Either a luminance from 0 to 255 or "auto" for Otsu's threshold.
+    private static int parseThreshold(ReadableMap map) {
+        if (map.getType("threshold") == ReadableType.String) {
+            if ("auto".equalsIgnoreCase(map.getString("threshold"))) {
+                return ImageDither.AUTO_THRESHOLD;
+            }
+        } else if (map.getType("threshold") == ReadableType.Number) {
+            int threshold = map.getInt("threshold");
+            if (threshold >= 0 && threshold <= 255) {
+                return threshold;
+            }
+        }
+        throw new IllegalArgumentException("threshold must be \"auto\" or a number from 0 to 255");
+    }
+
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    public ImageEncoding getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(ImageEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    public DitherMode getDitherMode() {
+        return ditherMode;
+    }
+
+    public void setDitherMode(DitherMode ditherMode) {
+        this.ditherMode = ditherMode;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isTrimWhitespace() {
+        return trimWhitespace;
+    }
+
+    public void setTrimWhitespace(boolean trimWhitespace) {
+        this.trimWhitespace = trimWhitespace;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Scale and convert to gray in one Canvas draw instead of in Java.
+     */
+    public boolean isCanvasScaling() {
+        return canvasScaling;
+    }
+
+    public void setCanvasScaling(boolean canvasScaling) {
+        this.canvasScaling = canvasScaling;
+    }
+
+    /**
+     * Encode in 24-row bands and reuse those already encoded for an earlier
+     * image; side margins are not cropped. With canvasScaling the bands are
+     * cut from the Canvas drawn ink plane.
+     */
+    public boolean isReuseBands() {
+        return reuseBands;
+    }
+
+    public void setReuseBands(boolean reuseBands) {
+        this.reuseBands = reuseBands;
+    }
+
+    /**
+     * Key under which the image is kept in printer memory, or null to send it with every print.
+     */
+    public String getLogoKey() {
+        return logoKey;
+    }
+
+    public void setLogoKey(String logoKey) {
+        this.logoKey = logoKey;
+    }
+
+    public LogoStorage getLogoStorage() {
+        return logoStorage;
+    }
+
+    public void setLogoStorage(LogoStorage logoStorage) {
+        this.logoStorage = logoStorage;
+    }
+
+    public ImageEncoding resolveEncoding(ImageEncoding printerDefault) {
+        if (encoding != null) {
+            return encoding;
+        }
+        return printerDefault != null ? printerDefault : ImageEncoding.DEFAULT;
+    }
+}
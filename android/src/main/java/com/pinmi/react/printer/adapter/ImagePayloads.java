@@ -0,0 +1,187 @@
+package com.pinmi.react.printer.adapter;
+
+import static com.pinmi.react.printer.adapter.UtilsImage.getMonochromeBitmap;
+
+import android.util.Base64;
+import android.util.Log;
+
+import com.pinmi.react.printer.raster.BandCache;
+import com.pinmi.react.printer.raster.EscPosImageEncoder;
+import com.pinmi.react.printer.raster.ImageEncoding;
+import com.pinmi.react.printer.raster.MonochromeBitmap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Produces the printer bytes for an image, going through
+ * {@link EncodedImageCache} and then {@link DiskImageCache} so repeated logos
+ * skip download, decode, resize and encoding altogether.
+ */
+public class ImagePayloads {
+    private static final String LOG_TAG = "RNPrinterImages";
+
+    public interface BitmapLoader {
+        BitmapDecoder.Decoded load();
+    }
+
+    private ImagePayloads() {
+    }
+
+    public static String urlSource(String imageUrl) {
+        return "url:" + imageUrl;
+    }
+
+    public static String base64Source(String base64) {
+        return "base64:" + DiskImageCache.sha1(base64);
+    }
+
+    public static BitmapLoader urlLoader(final String imageUrl, final ImageOptions options) {
+        return new UrlLoader(imageUrl, options);
+    }
+
+    public static BitmapLoader base64Loader(final String base64, final ImageOptions options) {
+        return new BitmapLoader() {
+            @Override
+            public BitmapDecoder.Decoded load() {
+                byte[] decodedString = Base64.decode(base64, Base64.DEFAULT);
+                return BitmapDecoder.decode(decodedString, options.getImageWidth(), options.getImageHeight());
+            }
+        };
+    }
+
+    // Lets get() revalidate cached payloads of the URL against the server.
+    private static class UrlLoader implements BitmapLoader {
+        final String imageUrl;
+        final ImageOptions options;
+
+        UrlLoader(String imageUrl, ImageOptions options) {
+            this.imageUrl = imageUrl;
+            this.options = options;
+        }
+
+        @Override
+        public BitmapDecoder.Decoded load() {
+            try {
+                return decode(ImageFetcher.getInstance().fetch(imageUrl));
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "failed to download " + imageUrl, e);
+                return null;
+            }
+        }
+
+        BitmapDecoder.Decoded decode(byte[] data) {
+            return BitmapDecoder.decode(data, options.getImageWidth(), options.getImageHeight());
+        }
+    }
+
+    /**
+     * Cached URL payloads are used as they are for a few minutes after the
+     * server was last asked, then revalidated with a conditional GET; a
+     * changed image is downloaded and encoded again. When the server cannot
+     * be reached the cached payload is printed.
+     *
+     * @return the encoded image, or null when the loader could not provide a bitmap
+     */
+    public static byte[] get(String source, ImageOptions options, ImageEncoding encoding, BitmapLoader loader)
+            throws IOException {
+        EncodedImageCache cache = EncodedImageCache.getInstance();
+        if (options.isReuseBands()) {
+            return encodeBands(options, encoding, cache.getBandCache(), loader);
+        }
+        String key = EncodedImageCache.keyOf(source, options, encoding);
+        CachedPayload cached = cache.get(key);
+        DiskImageCache diskCache = DiskImageCache.getInstance();
+        if (cached == null && diskCache != null) {
+            cached = diskCache.get(key);
+            if (cached != null) {
+                cache.put(key, cached);
+            }
+        }
+
+        if (!(loader instanceof UrlLoader)) {
+            if (cached != null) {
+                return cached.payload;
+            }
+            return encode(key, options, encoding, loader.load(), null, null);
+        }
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.isFresh(now)) {
+            return cached.payload;
+        }
+        UrlLoader urlLoader = (UrlLoader) loader;
+        ImageFetcher.Response response;
+        try {
+            response = cached == null
+                    ? ImageFetcher.getInstance().fetch(urlLoader.imageUrl, null, null)
+                    : ImageFetcher.getInstance().fetch(urlLoader.imageUrl, cached.etag, cached.lastModified);
+        } catch (IOException e) {
+            if (cached == null) {
+                Log.w(LOG_TAG, "failed to download " + urlLoader.imageUrl, e);
+                return null;
+            }
+            Log.w(LOG_TAG, "failed to revalidate " + urlLoader.imageUrl + ", printing the cached copy", e);
+            return cached.payload;
+        }
+        if (response.isNotModified()) {
+            cache.put(key, cached.checkedAt(now));
+            return cached.payload;
+        }
+        return encode(key, options, encoding, urlLoader.decode(response.body), response.etag,
+                response.lastModified);
+    }
+
+    private static byte[] encode(String key, ImageOptions options, ImageEncoding encoding,
+                                 BitmapDecoder.Decoded image, String etag, String lastModified) throws IOException {
+        if (image == null) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EscPosImageEncoder.encode(monochrome(options, image), encoding, options.isTrimWhitespace(), out);
+        CachedPayload entry = new CachedPayload(out.toByteArray(), etag, lastModified, System.currentTimeMillis());
+        EncodedImageCache.getInstance().put(key, entry);
+        DiskImageCache diskCache = DiskImageCache.getInstance();
+        if (diskCache != null) {
+            diskCache.put(key, entry);
+        }
+        return entry.payload;
+    }
+
+    /**
+     * @return the image scaled and binarized for printing, or null when the loader could not provide a bitmap
+     */
+    public static MonochromeBitmap monochrome(ImageOptions options, BitmapLoader loader) {
+        BitmapDecoder.Decoded image = loader.load();
+        if (image == null) {
+            return null;
+        }
+        return monochrome(options, image);
+    }
+
+    private static MonochromeBitmap monochrome(ImageOptions options, BitmapDecoder.Decoded image) {
+        if (options.isCanvasScaling()) {
+            return CanvasGrayscale.binarize(image.bitmap, image.width, image.height, options.getDitherMode(),
+                    options.getThreshold());
+        }
+        return getMonochromeBitmap(image.bitmap, image.width, image.height, options.getDitherMode(),
+                options.getThreshold());
+    }
+
+    // Images printed with reuseBands differ every time, so only their bands are kept.
+    private static byte[] encodeBands(ImageOptions options, ImageEncoding encoding, BandCache bandCache,
+                                      BitmapLoader loader) throws IOException {
+        BitmapDecoder.Decoded image = loader.load();
+        if (image == null) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (options.isCanvasScaling()) {
+            CanvasGrayscale.encodeBands(image.bitmap, image.width, image.height, options.getDitherMode(),
+                    options.getThreshold(), encoding, options.isTrimWhitespace(), bandCache, out);
+        } else {
+            UtilsImage.encodeBands(image.bitmap, image.width, image.height, options.getDitherMode(),
+                    options.getThreshold(), encoding, options.isTrimWhitespace(), bandCache, out);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,53 @@
+package com.pinmi.react.printer.adapter;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
+import com.pinmi.react.printer.command.CodePage;
+import com.pinmi.react.printer.command.MarkupCompiler;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the printMarkup options with the defaults of EPToolkit: cut and
+ * tailingLine on, beep off, "UTF8" text. A "codePages" list such as
+ * ["CP437", "CP1252", "GB18030"] replaces the encoding and lets the text
+ * switch printer tables in that order of preference; it may hold only one
+ * double-byte page.
+ */
+public class MarkupOptions {
+
+    private MarkupOptions() {
+    }
+
+    public static MarkupCompiler compiler(ReadableMap options) {
+        boolean cut = readBoolean(options, "cut", true);
+        boolean beep = readBoolean(options, "beep", false);
+        boolean tailingLine = readBoolean(options, "tailingLine", true);
+        if (options != null && options.hasKey("codePages") && options.getType("codePages") == ReadableType.Array) {
+            ReadableArray names = options.getArray("codePages");
+            List<CodePage> codePages = new ArrayList<>();
+            for (int i = 0; i < names.size(); i++) {
+                codePages.add(CodePage.fromName(names.getString(i)));
+            }
+            if (codePages.isEmpty()) {
+                throw new IllegalArgumentException("code pages are missing");
+            }
+            return new MarkupCompiler(codePages, cut, beep, tailingLine);
+        }
+        String encoding = "UTF8";
+        if (options != null && options.hasKey("encoding") && options.getType("encoding") == ReadableType.String) {
+            encoding = options.getString("encoding");
+        }
+        return new MarkupCompiler(Charset.forName(encoding), cut, beep, tailingLine);
+    }
+
+    private static boolean readBoolean(ReadableMap options, String key, boolean defaultValue) {
+        if (options == null || !options.hasKey(key) || options.getType(key) != ReadableType.Boolean) {
+            return defaultValue;
+        }
+        return options.getBoolean(key);
+    }
+}
@@ -1,9 +1,6 @@
 package com.pinmi.react.printer.adapter;
-import static com.pinmi.react.printer.adapter.UtilsImage.getPixelsSlow;
-import static com.pinmi.react.printer.adapter.UtilsImage.recollectSlice;
 
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.net.wifi.WifiManager;
 import android.os.Build;
 import android.util.Base64;
@@ -15,19 +12,23 @@ import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.pinmi.react.printer.command.BarcodeCommand;
+import com.pinmi.react.printer.command.MarkupCompiler;
+import com.pinmi.react.printer.command.QRCodeCommand;
+import com.pinmi.react.printer.raster.EscPosImageEncoder;
+import com.pinmi.react.printer.raster.ImageEncoding;
+import com.pinmi.react.printer.raster.MonochromeBitmap;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import android.graphics.BitmapFactory;
 import androidx.annotation.RequiresApi;
 
 /**
@@ -46,15 +47,12 @@ public class NetPrinterAdapter implements PrinterAdapter {
     private static final String EVENT_SCANNER_RESOLVED = "scannerResolved";
     private static final String EVENT_SCANNER_RUNNING = "scannerRunning";
 
-    private final static char ESC_CHAR = 0x1B;
-    private static final byte[] SELECT_BIT_IMAGE_MODE = {0x1B, 0x2A, 33};
-    private final static byte[] SET_LINE_SPACE_24 = new byte[]{ESC_CHAR, 0x33, 24};
-    private final static byte[] SET_LINE_SPACE_32 = new byte[]{ESC_CHAR, 0x33, 32};
-    private final static byte[] LINE_FEED = new byte[]{0x0A};
-    private static final byte[] CENTER_ALIGN = {0x1B, 0X61, 0X31};
-
     private Socket mSocket;
 
+    private final Map<PrinterDeviceId, ImageEncoding> mImageEncodings = new HashMap<>();
+    private final Map<PrinterDeviceId, PrinterCapabilities> mCapabilities = new HashMap<>();
+    private final StoredLogos mStoredLogos = new StoredLogos();
+
     private boolean isRunning = false;
 
     private NetPrinterAdapter() {
@@ -183,6 +181,7 @@ public class NetPrinterAdapter implements PrinterAdapter {
                 closeConnectionIfExists();
                 this.mSocket = socket;
                 this.mNetDevice = new NetPrinterDevice(netPrinterDeviceId.getHost(), netPrinterDeviceId.getPort());
+                mStoredLogos.forgetDownloads(netPrinterDeviceId);
                 sucessCallback.invoke(this.mNetDevice.toRNWritableMap());
             } else {
                 errorCallback.invoke("unable to build connection with host: " + netPrinterDeviceId.getHost()
@@ -237,67 +236,62 @@ public class NetPrinterAdapter implements PrinterAdapter {
 
     }
 
-    public static Bitmap getBitmapFromURL(String src) {
-        try {
-            URL url = new URL(src);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setDoInput(true);
-            connection.connect();
-            InputStream input = connection.getInputStream();
-            Bitmap myBitmap = BitmapFactory.decodeStream(input);
-
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            myBitmap.compress(Bitmap.CompressFormat.PNG, 100, baos);
-
-            return myBitmap;
-        } catch (IOException e) {
-            // Log exception
-            return null;
+    @Override
+    public void printImageData(String imageUrl, ImageOptions options, Callback errorCallback) {
+        if (options.getLogoKey() != null) {
+            printLogoImage(ImagePayloads.urlSource(imageUrl), ImagePayloads.urlLoader(imageUrl, options), options,
+                    errorCallback);
+            return;
         }
+        if (options.isStreaming()) {
+            byte[] imageData;
+            try {
+                imageData = ImageFetcher.getInstance().fetch(imageUrl);
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "failed to download " + imageUrl, e);
+                errorCallback.invoke("image not found");
+                return;
+            }
+            printImageStreaming(imageData, options, errorCallback);
+            return;
+        }
+        printImage(ImagePayloads.urlSource(imageUrl), ImagePayloads.urlLoader(imageUrl, options), options, errorCallback);
     }
 
-
     @Override
-    public void printImageData(final String imageUrl, int imageWidth, int imageHeight, Callback errorCallback) {
-        final Bitmap bitmapImage = getBitmapFromURL(imageUrl);
-
-        if (bitmapImage == null) {
-            errorCallback.invoke("image not found");
+    public void printImageBase64(final String base64, ImageOptions options, Callback errorCallback) {
+        if (options.getLogoKey() != null) {
+            printLogoImage(ImagePayloads.base64Source(base64), ImagePayloads.base64Loader(base64, options), options,
+                    errorCallback);
+            return;
+        }
+        if (options.isStreaming()) {
+            printImageStreaming(Base64.decode(base64, Base64.DEFAULT), options, errorCallback);
             return;
         }
+        printImage(ImagePayloads.base64Source(base64), ImagePayloads.base64Loader(base64, options), options,
+                errorCallback);
+    }
 
+    private void printImage(String source, ImagePayloads.BitmapLoader loader, ImageOptions options,
+                            Callback errorCallback) {
         if (this.mSocket == null) {
             errorCallback.invoke("Net connection is not built, may be you forgot to connectPrinter");
             return;
         }
 
         final Socket socket = this.mSocket;
-        try {
-            int[][] pixels = getPixelsSlow(bitmapImage, imageWidth, imageHeight);
-
-            OutputStream printerOutputStream = socket.getOutputStream();
+        ImageEncoding encoding = resolveImageEncoding(options);
 
-            printerOutputStream.write(SET_LINE_SPACE_24);
-            printerOutputStream.write(CENTER_ALIGN);
-
-            for (int y = 0; y < pixels.length; y += 24) {
-                // Like I said before, when done sending data,
-                // the printer will resume to normal text printing
-                printerOutputStream.write(SELECT_BIT_IMAGE_MODE);
-                // Set nL and nH based on the width of the image
-                printerOutputStream.write(new byte[]{(byte) (0x00ff & pixels[y].length)
-                        , (byte) ((0xff00 & pixels[y].length) >> 8)});
-                for (int x = 0; x < pixels[y].length; x++) {
-                    // for each stripe, recollect 3 bytes (3 bytes = 24 bits)
-                    printerOutputStream.write(recollectSlice(y, x, pixels));
-                }
-
-                // Do a line feed, if not the printing will resume on the same line
-                printerOutputStream.write(LINE_FEED);
+        try {
+            byte[] payload = ImagePayloads.get(source, options, encoding, loader);
+            if (payload == null) {
+                errorCallback.invoke("image not found");
+                return;
             }
-            printerOutputStream.write(SET_LINE_SPACE_32);
-            printerOutputStream.write(LINE_FEED);
 
+            OutputStream printerOutputStream = socket.getOutputStream();
+            printerOutputStream.write(payload);
             printerOutputStream.flush();
         } catch (IOException e) {
             Log.e(LOG_TAG, "failed to print data");
@@ -306,49 +300,179 @@ public class NetPrinterAdapter implements PrinterAdapter {
     }
 
     @Override
-    public void printImageBase64(final Bitmap bitmapImage, int imageWidth, int imageHeight, Callback errorCallback) {
-        if (bitmapImage == null) {
+    public void printMarkup(String text, MarkupCompiler compiler, Callback errorCallback) {
+        if (this.mSocket == null) {
+            errorCallback.invoke("Net connection is not built, may be you forgot to connectPrinter");
+            return;
+        }
+
+        final Socket socket = this.mSocket;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compiler.compile(text, socket.getOutputStream());
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "failed to print data", e);
+                    errorCallback.invoke("IO error while printing: " + e.getMessage());
+                }
+            }
+        }).start();
+    }
+
+    private void printLogoImage(String source, ImagePayloads.BitmapLoader loader, ImageOptions options,
+                                Callback errorCallback) {
+        PrinterDeviceId printerDeviceId = currentPrinterDeviceId();
+        byte[] payload;
+        try {
+            payload = mStoredLogos.payload(printerDeviceId, source, options, loader);
+        } catch (IllegalArgumentException | IOException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        if (payload == null) {
             errorCallback.invoke("image not found");
             return;
         }
+        if (!sendPayload(payload, errorCallback)) {
+            mStoredLogos.forget(printerDeviceId, options.getLogoKey());
+        }
+    }
 
+    @Override
+    public void printLogo(String key, Callback errorCallback) {
+        byte[] payload;
+        try {
+            payload = mStoredLogos.printCommand(currentPrinterDeviceId(), key);
+        } catch (IllegalArgumentException | IOException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        printPayload(payload, errorCallback);
+    }
+
+    private void printImageStreaming(byte[] imageData, ImageOptions options, Callback errorCallback) {
         if (this.mSocket == null) {
             errorCallback.invoke("Net connection is not built, may be you forgot to connectPrinter");
             return;
         }
 
-        final Socket socket = this.mSocket;
-
         try {
-            int[][] pixels = getPixelsSlow(bitmapImage, imageWidth, imageHeight);
+            OutputStream printerOutputStream = this.mSocket.getOutputStream();
+            if (!StreamingImageEncoder.encode(imageData, options, resolveImageEncoding(options), printerOutputStream)) {
+                errorCallback.invoke("image not found");
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "failed to print data", e);
+            errorCallback.invoke("Printing failed: " + e.getMessage());
+        }
+    }
 
-            OutputStream printerOutputStream = socket.getOutputStream();
+    private PrinterDeviceId currentPrinterDeviceId() {
+        return mNetDevice != null ? mNetDevice.getPrinterDeviceId() : null;
+    }
 
-            printerOutputStream.write(SET_LINE_SPACE_24);
-            printerOutputStream.write(CENTER_ALIGN);
-
-            for (int y = 0; y < pixels.length; y += 24) {
-                // Like I said before, when done sending data,
-                // the printer will resume to normal text printing
-                printerOutputStream.write(SELECT_BIT_IMAGE_MODE);
-                // Set nL and nH based on the width of the image
-                printerOutputStream.write(new byte[]{(byte) (0x00ff & pixels[y].length)
-                        , (byte) ((0xff00 & pixels[y].length) >> 8)});
-                for (int x = 0; x < pixels[y].length; x++) {
-                    // for each stripe, recollect 3 bytes (3 bytes = 24 bits)
-                    printerOutputStream.write(recollectSlice(y, x, pixels));
-                }
+    private ImageEncoding printerImageEncoding() {
+        ImageEncoding encoding = mImageEncodings.get(currentPrinterDeviceId());
+        return encoding != null ? encoding : ImageEncoding.DEFAULT;
+    }
+
+    private ImageEncoding resolveImageEncoding(ImageOptions options) {
+        return options.resolveEncoding(printerImageEncoding());
+    }
+
+    @Override
+    public void setImageEncoding(PrinterDeviceId printerDeviceId, ImageEncoding encoding) {
+        mImageEncodings.put(printerDeviceId, encoding);
+    }
+
+    @Override
+    public boolean prefetchImageData(String imageUrl, ImageOptions options) throws IOException {
+        return ImagePayloads.get(ImagePayloads.urlSource(imageUrl), options, resolveImageEncoding(options),
+                ImagePayloads.urlLoader(imageUrl, options)) != null;
+    }
+
+    @Override
+    public void setPrinterCapabilities(PrinterDeviceId printerDeviceId, PrinterCapabilities capabilities) {
+        mCapabilities.put(printerDeviceId, capabilities);
+    }
+
+    private PrinterCapabilities resolveCapabilities() {
+        PrinterCapabilities capabilities = mCapabilities.get(currentPrinterDeviceId());
+        return capabilities != null ? capabilities : PrinterCapabilities.DEFAULT;
+    }
+
+    @Override
+    public void printQRCode(QRCodeCommand qrCode, Callback errorCallback) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try {
+            if (resolveCapabilities().isNativeQRCode()) {
+                qrCode.writeNative(payload);
+            } else {
+                qrCode.writeRaster(printerImageEncoding(), payload);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        printPayload(payload.toByteArray(), errorCallback);
+    }
 
-                // Do a line feed, if not the printing will resume on the same line
-                printerOutputStream.write(LINE_FEED);
+    @Override
+    public void printBarcode(BarcodeCommand barcode, Callback errorCallback) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try {
+            if (resolveCapabilities().isNativeBarcode(barcode.getSymbology())) {
+                barcode.writeNative(payload);
+            } else {
+                barcode.writeRaster(printerImageEncoding(), payload);
             }
-            printerOutputStream.write(SET_LINE_SPACE_32);
-            printerOutputStream.write(LINE_FEED);
+        } catch (IllegalArgumentException | IOException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        printPayload(payload.toByteArray(), errorCallback);
+    }
 
+    @Override
+    public void printTextAsImage(String text, TextStyle style, int width, Callback errorCallback) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try {
+            MonochromeBitmap image = TextImageRenderer.getInstance().render(text, style, width);
+            EscPosImageEncoder.encode(image, printerImageEncoding(), true, payload);
+        } catch (IllegalArgumentException | IOException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        printPayload(payload.toByteArray(), errorCallback);
+    }
+
+    @Override
+    public void printPayload(byte[] payload, Callback errorCallback) {
+        sendPayload(payload, errorCallback);
+    }
+
+    /**
+     * Reports a failure through errorCallback, so callers such as a logo
+     * define only have to undo their own bookkeeping.
+     *
+     * @return false when the payload could not be written to the printer
+     */
+    private boolean sendPayload(byte[] payload, Callback errorCallback) {
+        if (this.mSocket == null) {
+            errorCallback.invoke("Net connection is not built, may be you forgot to connectPrinter");
+            return false;
+        }
+
+        try {
+            OutputStream printerOutputStream = this.mSocket.getOutputStream();
+            printerOutputStream.write(payload);
             printerOutputStream.flush();
         } catch (IOException e) {
-            Log.e(LOG_TAG, "failed to print data");
-            e.printStackTrace();
+            Log.e(LOG_TAG, "failed to print data", e);
+            errorCallback.invoke("IO error while printing: " + e.getMessage());
+            return false;
         }
+        return true;
     }
 }
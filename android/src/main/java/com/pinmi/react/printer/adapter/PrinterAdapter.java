@@ -2,12 +2,16 @@ package com.pinmi.react.printer.adapter;
 
 import android.app.Activity;
 import android.content.Context;
-import android.graphics.Bitmap;
 import android.telecom.Call;
 
 import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.pinmi.react.printer.command.BarcodeCommand;
+import com.pinmi.react.printer.command.MarkupCompiler;
+import com.pinmi.react.printer.command.QRCodeCommand;
+import com.pinmi.react.printer.raster.ImageEncoding;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -27,7 +31,28 @@ public interface PrinterAdapter {
 
     public void printRawData(String rawBase64Data, Callback errorCallback);
 
-    public void printImageData(String imageUrl, int imageWidth, int imageHeight, Callback errorCallback);
+    /**
+     * Sends encoded bytes as they are; a failed write is reported through errorCallback.
+     */
+    public void printPayload(byte[] payload, Callback errorCallback);
 
-    public void printImageBase64(Bitmap imageUrl, int imageWidth, int imageHeight, Callback errorCallback);
+    public void printImageData(String imageUrl, ImageOptions options, Callback errorCallback);
+
+    public void printImageBase64(String base64, ImageOptions options, Callback errorCallback);
+
+    public void setImageEncoding(PrinterDeviceId printerDeviceId, ImageEncoding encoding);
+
+    public boolean prefetchImageData(String imageUrl, ImageOptions options) throws IOException;
+
+    public void setPrinterCapabilities(PrinterDeviceId printerDeviceId, PrinterCapabilities capabilities);
+
+    public void printQRCode(QRCodeCommand qrCode, Callback errorCallback);
+
+    public void printBarcode(BarcodeCommand barcode, Callback errorCallback);
+
+    public void printTextAsImage(String text, TextStyle style, int width, Callback errorCallback);
+
+    public void printMarkup(String text, MarkupCompiler compiler, Callback errorCallback);
+
+    public void printLogo(String key, Callback errorCallback);
 }
@@ -0,0 +1,45 @@
+package com.pinmi.react.printer.adapter;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.pinmi.react.printer.command.BarcodeSymbology;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Printer commands a particular printer understands. Anything it lacks is
+ * rasterized and sent as an image instead.
+ */
+public class PrinterCapabilities {
+    public static final PrinterCapabilities DEFAULT = new PrinterCapabilities();
+
+    private boolean nativeQRCode = true;
+    private Set<BarcodeSymbology> nativeBarcodes = EnumSet.allOf(BarcodeSymbology.class);
+
+    public static PrinterCapabilities fromReadableMap(ReadableMap map) {
+        PrinterCapabilities capabilities = new PrinterCapabilities();
+        if (map == null) {
+            return capabilities;
+        }
+        if (map.hasKey("qrCode") && !map.isNull("qrCode")) {
+            capabilities.nativeQRCode = map.getBoolean("qrCode");
+        }
+        if (map.hasKey("barcodes") && !map.isNull("barcodes")) {
+            ReadableArray barcodes = map.getArray("barcodes");
+            capabilities.nativeBarcodes = EnumSet.noneOf(BarcodeSymbology.class);
+            for (int i = 0; i < barcodes.size(); i++) {
+                capabilities.nativeBarcodes.add(BarcodeSymbology.fromName(barcodes.getString(i)));
+            }
+        }
+        return capabilities;
+    }
+
+    public boolean isNativeQRCode() {
+        return nativeQRCode;
+    }
+
+    public boolean isNativeBarcode(BarcodeSymbology symbology) {
+        return nativeBarcodes.contains(symbology);
+    }
+}
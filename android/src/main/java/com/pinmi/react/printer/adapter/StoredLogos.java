@@ -0,0 +1,223 @@
+package com.pinmi.react.printer.adapter;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.pinmi.react.printer.raster.EscPosImageEncoder;
+import com.pinmi.react.printer.raster.LogoStorage;
+import com.pinmi.react.printer.raster.MonochromeBitmap;
+import com.pinmi.react.printer.raster.StoredGraphics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which logos an adapter has put into the memory of each printer,
+ * so that later prints of the same image only send the print-by-key command.
+ * <ul>
+ * <li>NV logos survive a power cycle, so their record is kept in
+ * SharedPreferences and an app restart does not write the flash again.</li>
+ * <li>Download logos live in printer RAM and are forgotten whenever the
+ * adapter opens a new connection, the usual sign of a restarted printer.
+ * A power cycle that keeps the connection open goes unnoticed.</li>
+ * <li>Legacy FS q images are also in NV memory, but redefining one needs the
+ * bitmaps of all the others, so their record lasts as long as the app.</li>
+ * </ul>
+ */
+public class StoredLogos {
+    private static final String PREFERENCES = "rn-thermal-printer-logos";
+
+    private static volatile SharedPreferences sPreferences;
+
+    private final Map<PrinterDeviceId, Map<String, Logo>> mLogos = new HashMap<>();
+
+    private static class Logo {
+        final String identity;
+        final LogoStorage storage;
+        // Kept for FS q, which has to define all legacy images again whenever one changes.
+        final MonochromeBitmap image;
+
+        Logo(String identity, LogoStorage storage, MonochromeBitmap image) {
+            this.identity = identity;
+            this.storage = storage;
+            this.image = image;
+        }
+    }
+
+    public static synchronized void init(Context context) {
+        if (sPreferences == null) {
+            sPreferences = context.getApplicationContext().getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        }
+    }
+
+    /**
+     * Bytes that print the image under options.getLogoKey(), defining it first
+     * unless the printer already holds the same image under that key. The
+     * logo counts as stored from here on; call {@link #forget} if sending fails.
+     *
+     * @return null when the loader could not provide a bitmap
+     */
+    public synchronized byte[] payload(PrinterDeviceId printerDeviceId, String source, ImageOptions options,
+                                       ImagePayloads.BitmapLoader loader) throws IOException {
+        String key = options.getLogoKey();
+        LogoStorage storage = options.getLogoStorage();
+        String identity = source + '|' + options.getImageWidth() + 'x' + options.getImageHeight()
+                + '|' + options.getDitherMode() + '|' + options.getThreshold() + '|' + options.isCanvasScaling()
+                + '|' + options.isTrimWhitespace() + '|' + storage;
+        Map<String, Logo> logos = logosOf(printerDeviceId);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Logo logo = logos.get(key);
+        if (logo == null) {
+            logo = restore(printerDeviceId, key, logos);
+        }
+        if (logo == null || !logo.identity.equals(identity)) {
+            MonochromeBitmap image = ImagePayloads.monochrome(options, loader);
+            if (image == null) {
+                return null;
+            }
+            if (options.isTrimWhitespace()) {
+                image = EscPosImageEncoder.cropMargins(image);
+            }
+            boolean legacy = storage == LogoStorage.LEGACY;
+            logo = new Logo(identity, storage, legacy ? image : null);
+            logos.put(key, logo);
+            if (legacy) {
+                StoredGraphics.writeLegacyDefine(legacyImages(logos), out);
+            } else {
+                StoredGraphics.writeDefine(image, key, storage, out);
+            }
+            persist(printerDeviceId, key, logo);
+        }
+        writePrint(logos, key, logo, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Bytes that print a logo stored earlier under key.
+     */
+    public synchronized byte[] printCommand(PrinterDeviceId printerDeviceId, String key) throws IOException {
+        Map<String, Logo> logos = logosOf(printerDeviceId);
+        Logo logo = logos.get(key);
+        if (logo == null) {
+            logo = restore(printerDeviceId, key, logos);
+        }
+        if (logo == null) {
+            throw new IllegalArgumentException("logo " + key + " is not stored on this printer");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writePrint(logos, key, logo, out);
+        return out.toByteArray();
+    }
+
+    public synchronized void forget(PrinterDeviceId printerDeviceId, String key) {
+        logosOf(printerDeviceId).remove(key);
+        String name = preferenceName(printerDeviceId, key);
+        if (name != null) {
+            sPreferences.edit().remove(name).apply();
+        }
+    }
+
+    /**
+     * Drops the download logos of a printer that was connected again, so the
+     * next print defines them anew in case the printer was restarted.
+     */
+    public synchronized void forgetDownloads(PrinterDeviceId printerDeviceId) {
+        Iterator<Logo> logos = logosOf(printerDeviceId).values().iterator();
+        while (logos.hasNext()) {
+            if (logos.next().storage == LogoStorage.DOWNLOAD) {
+                logos.remove();
+            }
+        }
+    }
+
+    // Only NV logos are restored; their identity ends with the storage.
+    private static Logo restore(PrinterDeviceId printerDeviceId, String key, Map<String, Logo> logos) {
+        String name = preferenceName(printerDeviceId, key);
+        String identity = name != null ? sPreferences.getString(name, null) : null;
+        if (identity == null) {
+            return null;
+        }
+        Logo logo = new Logo(identity, LogoStorage.NV, null);
+        logos.put(key, logo);
+        return logo;
+    }
+
+    private static void persist(PrinterDeviceId printerDeviceId, String key, Logo logo) {
+        String name = preferenceName(printerDeviceId, key);
+        if (name == null) {
+            return;
+        }
+        if (logo.storage == LogoStorage.NV) {
+            sPreferences.edit().putString(name, logo.identity).apply();
+        } else {
+            // The key now holds another kind of logo.
+            sPreferences.edit().remove(name).apply();
+        }
+    }
+
+    /**
+     * Preference holding the NV logo stored under key, or null without
+     * preferences or a printer to tell apart.
+     */
+    private static String preferenceName(PrinterDeviceId printerDeviceId, String key) {
+        if (sPreferences == null) {
+            return null;
+        }
+        if (printerDeviceId instanceof NetPrinterDeviceId) {
+            NetPrinterDeviceId id = (NetPrinterDeviceId) printerDeviceId;
+            return "net|" + id.getHost() + ':' + id.getPort() + '|' + key;
+        }
+        if (printerDeviceId instanceof BLEPrinterDeviceId) {
+            return "ble|" + ((BLEPrinterDeviceId) printerDeviceId).getInnerMacAddress() + '|' + key;
+        }
+        if (printerDeviceId instanceof USBPrinterDeviceId) {
+            USBPrinterDeviceId id = (USBPrinterDeviceId) printerDeviceId;
+            return "usb|" + id.getVendorId() + ':' + id.getProductId() + '|' + key;
+        }
+        return null;
+    }
+
+    private Map<String, Logo> logosOf(PrinterDeviceId printerDeviceId) {
+        Map<String, Logo> logos = mLogos.get(printerDeviceId);
+        if (logos == null) {
+            // Insertion order numbers the legacy images.
+            logos = new LinkedHashMap<>();
+            mLogos.put(printerDeviceId, logos);
+        }
+        return logos;
+    }
+
+    private static List<MonochromeBitmap> legacyImages(Map<String, Logo> logos) {
+        List<MonochromeBitmap> images = new ArrayList<>();
+        for (Logo logo : logos.values()) {
+            if (logo.storage == LogoStorage.LEGACY) {
+                images.add(logo.image);
+            }
+        }
+        return images;
+    }
+
+    private static void writePrint(Map<String, Logo> logos, String key, Logo logo, ByteArrayOutputStream out)
+            throws IOException {
+        if (logo.storage != LogoStorage.LEGACY) {
+            StoredGraphics.writePrint(key, logo.storage, out);
+            return;
+        }
+        int number = 0;
+        for (Map.Entry<String, Logo> entry : logos.entrySet()) {
+            if (entry.getValue().storage == LogoStorage.LEGACY) {
+                number++;
+                if (entry.getKey().equals(key)) {
+                    break;
+                }
+            }
+        }
+        StoredGraphics.writeLegacyPrint(number, out);
+    }
+}
@@ -0,0 +1,117 @@
+package com.pinmi.react.printer.adapter;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.Build;
+
+import com.pinmi.react.printer.raster.EscPosImageEncoder;
+import com.pinmi.react.printer.raster.ImageDither;
+import com.pinmi.react.printer.raster.ImageEncoding;
+import com.pinmi.react.printer.raster.MonochromeBitmap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Decodes, scales, dithers and transmits an image one band at a time with
+ * {@link BitmapRegionDecoder}, so peak memory stays at a few bands no matter
+ * how tall the image is. Use it for long receipt images; the encoded bytes
+ * are not cached.
+ */
+public class StreamingImageEncoder {
+    // A multiple of every stripe height, large enough to keep region decodes few.
+    private static final int BAND_HEIGHT = 96;
+    // Width of the preview the automatic threshold is computed from.
+    private static final int PREVIEW_WIDTH = 128;
+
+    private StreamingImageEncoder() {
+    }
+
+    /**
+     * @return false when the data is not an image the region decoder understands
+     */
+    public static boolean encode(byte[] imageData, ImageOptions options, ImageEncoding encoding, OutputStream out)
+            throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(imageData, 0, imageData.length, bounds);
+        int sourceWidth = bounds.outWidth;
+        int sourceHeight = bounds.outHeight;
+        if (sourceWidth <= 0 || sourceHeight <= 0) {
+            return false;
+        }
+
+        BitmapRegionDecoder decoder = newRegionDecoder(imageData);
+        // Same print size as BitmapDecoder.decode.
+        int width = BitmapDecoder.printSize(options.getImageWidth(), sourceWidth);
+        int height = BitmapDecoder.printSize(options.getImageHeight(), sourceHeight);
+        int[] pixels = new int[width * BAND_HEIGHT];
+        MonochromeBitmap band = new MonochromeBitmap(width, BAND_HEIGHT);
+        Rect region = new Rect();
+        BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+        decodeOptions.inPreferredConfig = BitmapDecoder.preferredConfig(bounds.outMimeType);
+        int threshold = options.getThreshold();
+        if (threshold == ImageDither.AUTO_THRESHOLD) {
+            threshold = previewThreshold(imageData, sourceWidth, decodeOptions.inPreferredConfig);
+        }
+
+        try {
+            EscPosImageEncoder.writeHeader(encoding, out);
+            for (int y = 0; y < height; y += BAND_HEIGHT) {
+                int rows = Math.min(BAND_HEIGHT, height - y);
+                int top = (int) ((long) y * sourceHeight / height);
+                int bottom = (int) (((long) (y + rows) * sourceHeight + height - 1) / height);
+                region.set(0, top, sourceWidth, Math.max(bottom, top + 1));
+                decodeOptions.inSampleSize = BitmapDecoder.sampleSize(sourceWidth, region.height(), width, rows);
+
+                Bitmap decoded = decoder.decodeRegion(region, decodeOptions);
+                if (decoded == null) {
+                    throw new IOException("failed to decode image rows " + top + "-" + bottom);
+                }
+                if (rows != BAND_HEIGHT) {
+                    band = new MonochromeBitmap(width, rows);
+                }
+                // Error diffusion restarts at each band; seams are not visible at print resolution.
+                if (options.isCanvasScaling()) {
+                    CanvasGrayscale.binarize(decoded, width, rows, options.getDitherMode(), threshold, band);
+                } else {
+                    UtilsImage.readScaled(decoded, width, rows, pixels, null);
+                    ImageDither.ditherGray(pixels, width, rows, options.getDitherMode(), threshold, null, band);
+                }
+                decoded.recycle();
+                // Side margins are only cropped when the whole image is known, blank rows are still skipped.
+                EscPosImageEncoder.writeBand(band, encoding, options.isTrimWhitespace(), out);
+            }
+            EscPosImageEncoder.writeFooter(encoding, out);
+        } finally {
+            decoder.recycle();
+        }
+        return true;
+    }
+
+    // Bands only see part of the image, so Otsu's threshold comes from a small decode of the whole of it.
+    private static int previewThreshold(byte[] imageData, int sourceWidth, Bitmap.Config config) {
+        BitmapFactory.Options previewOptions = new BitmapFactory.Options();
+        previewOptions.inSampleSize = BitmapDecoder.sampleSize(sourceWidth, 0, PREVIEW_WIDTH, 0);
+        previewOptions.inPreferredConfig = config;
+        Bitmap preview = BitmapFactory.decodeByteArray(imageData, 0, imageData.length, previewOptions);
+        if (preview == null) {
+            return ImageDither.DEFAULT_THRESHOLD;
+        }
+        int[] pixels = new int[preview.getWidth() * preview.getHeight()];
+        int[] histogram = new int[256];
+        UtilsImage.readScaled(preview, preview.getWidth(), preview.getHeight(), pixels, histogram);
+        preview.recycle();
+        return ImageDither.otsuThreshold(histogram);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static BitmapRegionDecoder newRegionDecoder(byte[] imageData) throws IOException {
+        if (Build.VERSION.SDK_INT >= 31) {
+            return BitmapRegionDecoder.newInstance(imageData, 0, imageData.length);
+        }
+        return BitmapRegionDecoder.newInstance(imageData, 0, imageData.length, false);
+    }
+}
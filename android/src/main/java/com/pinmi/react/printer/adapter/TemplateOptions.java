@@ -0,0 +1,27 @@
+package com.pinmi.react.printer.adapter;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.pinmi.react.printer.command.ReceiptTemplate;
+
+import java.nio.charset.Charset;
+
+/**
+ * Reads the registerTemplate options: the text encoding of the template and
+ * its field values, "UTF-8" unless given.
+ */
+public class TemplateOptions {
+
+    private TemplateOptions() {
+    }
+
+    public static ReceiptTemplate compile(String template, ReadableMap options) {
+        if (template == null) {
+            throw new IllegalArgumentException("template is missing");
+        }
+        String encoding = "UTF-8";
+        if (options != null && options.hasKey("encoding") && !options.isNull("encoding")) {
+            encoding = options.getString("encoding");
+        }
+        return ReceiptTemplate.compile(template, Charset.forName(encoding));
+    }
+}
@@ -0,0 +1,117 @@
+package com.pinmi.react.printer.adapter;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Build;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.LruCache;
+
+import com.pinmi.react.printer.raster.DitherMode;
+import com.pinmi.react.printer.raster.ImageDither;
+import com.pinmi.react.printer.raster.MonochromeBitmap;
+import com.pinmi.react.printer.raster.RasterPipeline;
+
+/**
+ * Renders text the printer has no font for (Thai, Arabic, CJK ...) into a
+ * 1-bit image with {@link StaticLayout}, which does the shaping, bidi and
+ * wrapping. Every input line is kept thresholded in an LRU cache keyed by
+ * style and width, so a repeated menu item is copied instead of rendered.
+ */
+public class TextImageRenderer {
+    private static final int DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+
+    private static TextImageRenderer mInstance;
+
+    private final LruCache<String, MonochromeBitmap> mLines;
+
+    private TextImageRenderer(int maxBytes) {
+        mLines = new LruCache<String, MonochromeBitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, MonochromeBitmap value) {
+                return value.getData().length;
+            }
+        };
+    }
+
+    public static synchronized TextImageRenderer getInstance() {
+        if (mInstance == null) {
+            mInstance = new TextImageRenderer(DEFAULT_MAX_BYTES);
+        }
+        return mInstance;
+    }
+
+    /**
+     * @param width printable width in dots; lines longer than that wrap
+     */
+    public MonochromeBitmap render(String text, TextStyle style, int width) {
+        if (text == null) {
+            throw new IllegalArgumentException("text is missing");
+        }
+        if (width <= 0) {
+            throw new IllegalArgumentException("text width must be positive");
+        }
+        String[] lines = text.split("\n", -1);
+        MonochromeBitmap[] images = new MonochromeBitmap[lines.length];
+        int height = 0;
+        for (int i = 0; i < lines.length; i++) {
+            images[i] = renderLine(lines[i], style, width);
+            height += images[i].getHeight();
+        }
+        if (images.length == 1) {
+            return images[0];
+        }
+
+        // Same width everywhere, so the lines stack with one copy each.
+        MonochromeBitmap result = new MonochromeBitmap(width, height);
+        int offset = 0;
+        for (MonochromeBitmap image : images) {
+            System.arraycopy(image.getData(), 0, result.getData(), offset, image.getData().length);
+            offset += image.getData().length;
+        }
+        return result;
+    }
+
+    public void clear() {
+        mLines.evictAll();
+    }
+
+    private MonochromeBitmap renderLine(String line, TextStyle style, int width) {
+        String key = style.key() + '|' + width + '|' + line;
+        MonochromeBitmap image = mLines.get(key);
+        if (image != null) {
+            return image;
+        }
+
+        TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.BLACK);
+        paint.setTextSize(style.getSize());
+        paint.setTypeface(style.getTypeface());
+        StaticLayout layout = newLayout(line, paint, width, style.getAlignment(line));
+
+        int height = Math.max(1, layout.getHeight());
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.WHITE);
+        layout.draw(new Canvas(bitmap));
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        bitmap.recycle();
+
+        image = RasterPipeline.binarize(pixels, width, height, DitherMode.NONE, ImageDither.DEFAULT_THRESHOLD);
+        mLines.put(key, image);
+        return image;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static StaticLayout newLayout(String line, TextPaint paint, int width, Layout.Alignment alignment) {
+        if (Build.VERSION.SDK_INT >= 23) {
+            return StaticLayout.Builder.obtain(line, 0, line.length(), paint, width)
+                    .setAlignment(alignment)
+                    .setIncludePad(true)
+                    .build();
+        }
+        return new StaticLayout(line, paint, width, alignment, 1f, 0f, true);
+    }
+}
@@ -0,0 +1,91 @@
+package com.pinmi.react.printer.adapter;
+
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.TextDirectionHeuristics;
+
+import com.facebook.react.bridge.ReadableMap;
+
+import java.util.Locale;
+
+/**
+ * Font settings of {@link TextImageRenderer}: family, text size in dots,
+ * bold/italic and alignment within the printed width. "left" and "right" are
+ * physical sides of the paper, whatever the direction of the paragraph.
+ */
+public class TextStyle {
+    private enum Align {
+        LEFT, CENTER, RIGHT
+    }
+
+    private String family = "sans-serif";
+    private float size = 24;
+    private boolean bold = false;
+    private boolean italic = false;
+    private Align align = Align.LEFT;
+
+    public static TextStyle fromReadableMap(ReadableMap map) {
+        TextStyle style = new TextStyle();
+        if (map == null) {
+            return style;
+        }
+        if (map.hasKey("family") && !map.isNull("family")) {
+            style.family = map.getString("family");
+        }
+        if (map.hasKey("size") && !map.isNull("size")) {
+            style.size = (float) map.getDouble("size");
+            if (style.size <= 0) {
+                throw new IllegalArgumentException("font size must be positive");
+            }
+        }
+        if (map.hasKey("bold") && !map.isNull("bold")) {
+            style.bold = map.getBoolean("bold");
+        }
+        if (map.hasKey("italic") && !map.isNull("italic")) {
+            style.italic = map.getBoolean("italic");
+        }
+        if (map.hasKey("align") && !map.isNull("align")) {
+            style.align = parseAlignment(map.getString("align"));
+        }
+        return style;
+    }
+
+    private static Align parseAlignment(String align) {
+        switch (align.trim().toLowerCase(Locale.ROOT)) {
+            case "left":
+                return Align.LEFT;
+            case "center":
+                return Align.CENTER;
+            case "right":
+                return Align.RIGHT;
+            default:
+                throw new IllegalArgumentException("unknown text alignment: " + align);
+        }
+    }
+
+    public Typeface getTypeface() {
+        int style = (bold ? Typeface.BOLD : 0) | (italic ? Typeface.ITALIC : 0);
+        return Typeface.create(family, style);
+    }
+
+    public float getSize() {
+        return size;
+    }
+
+    /**
+     * Layout alignment of one paragraph. {@link Layout.Alignment} is relative
+     * to the paragraph direction, so an RTL paragraph swaps normal and opposite.
+     */
+    public Layout.Alignment getAlignment(CharSequence paragraph) {
+        if (align == Align.CENTER) {
+            return Layout.Alignment.ALIGN_CENTER;
+        }
+        boolean rtl = TextDirectionHeuristics.FIRSTSTRONG_LTR.isRtl(paragraph, 0, paragraph.length());
+        return (align == Align.LEFT) != rtl ? Layout.Alignment.ALIGN_NORMAL : Layout.Alignment.ALIGN_OPPOSITE;
+    }
+
+    // Identifies the rendering of a text with this style, for caches.
+    public String key() {
+        return family + '|' + size + '|' + bold + '|' + italic + '|' + align;
+    }
+}
@@ -1,7 +1,5 @@
 package com.pinmi.react.printer.adapter;
 
-import static com.pinmi.react.printer.adapter.UtilsImage.getPixelsSlow;
-import static com.pinmi.react.printer.adapter.UtilsImage.recollectSlice;
 
 import android.annotation.SuppressLint;
 import android.app.PendingIntent;
@@ -18,21 +16,24 @@ import android.hardware.usb.UsbManager;
 import android.util.Base64;
 import android.util.Log;
 import android.widget.Toast;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Build;
 
 import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.pinmi.react.printer.command.BarcodeCommand;
+import com.pinmi.react.printer.command.MarkupCompiler;
+import com.pinmi.react.printer.command.QRCodeCommand;
+import com.pinmi.react.printer.raster.EscPosImageEncoder;
+import com.pinmi.react.printer.raster.ImageEncoding;
+import com.pinmi.react.printer.raster.MonochromeBitmap;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by xiesubin on 2017/9/20.
@@ -56,12 +57,9 @@ public class USBPrinterAdapter implements PrinterAdapter {
     private static final String EVENT_USB_DEVICE_ATTACHED = "usbAttached";
     private static final String EVENT_USB_DEVICE_DETACHED = "usbDetached";
 
-    private final static char ESC_CHAR = 0x1B;
-    private static final byte[] SELECT_BIT_IMAGE_MODE = { 0x1B, 0x2A, 33 };
-    private final static byte[] SET_LINE_SPACE_24 = new byte[] { ESC_CHAR, 0x33, 24 };
-    private final static byte[] SET_LINE_SPACE_32 = new byte[] { ESC_CHAR, 0x33, 32 };
-    private final static byte[] LINE_FEED = new byte[] { 0x0A };
-    private static final byte[] CENTER_ALIGN = { 0x1B, 0X61, 0X31 };
+    private final Map<PrinterDeviceId, ImageEncoding> mImageEncodings = new HashMap<>();
+    private final Map<PrinterDeviceId, PrinterCapabilities> mCapabilities = new HashMap<>();
+    private final StoredLogos mStoredLogos = new StoredLogos();
 
     private USBPrinterAdapter() {
     }
@@ -318,6 +316,7 @@ public class USBPrinterAdapter implements PrinterAdapter {
                         mEndPoint = ep;
                         mUsbInterface = usbInterface;
                         mUsbDeviceConnection = usbDeviceConnection;
+                        mStoredLogos.forgetDownloads(currentPrinterDeviceId());
                         Log.i(LOG_TAG, "Device connected");
                         return true;
                     }
@@ -381,68 +380,65 @@ public void printRawData(String data, Callback errorCallback) {
         }).start();
     }
 
-    public static Bitmap getBitmapFromURL(String src) {
-        try {
-            URL url = new URL(src);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setDoInput(true);
-            connection.connect();
-            InputStream input = connection.getInputStream();
-            Bitmap myBitmap = BitmapFactory.decodeStream(input);
-
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            myBitmap.compress(Bitmap.CompressFormat.PNG, 100, baos);
-
-            return myBitmap;
-        } catch (IOException e) {
-            // Log exception
-            return null;
+    @Override
+    public void printImageData(String imageUrl, ImageOptions options, Callback errorCallback) {
+        if (options.getLogoKey() != null) {
+            printLogoImage(ImagePayloads.urlSource(imageUrl), ImagePayloads.urlLoader(imageUrl, options), options,
+                    errorCallback);
+            return;
         }
+        if (options.isStreaming()) {
+            byte[] imageData;
+            try {
+                imageData = ImageFetcher.getInstance().fetch(imageUrl);
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "failed to download " + imageUrl, e);
+                errorCallback.invoke("image not found");
+                return;
+            }
+            printImageStreaming(imageData, options, errorCallback);
+            return;
+        }
+        printImage(ImagePayloads.urlSource(imageUrl), ImagePayloads.urlLoader(imageUrl, options), options, errorCallback);
     }
 
     @Override
-    public void printImageData(final String imageUrl, int imageWidth, int imageHeight, Callback errorCallback) {
-        final Bitmap bitmapImage = getBitmapFromURL(imageUrl);
-
-        if (bitmapImage == null) {
-            errorCallback.invoke("image not found");
+    public void printImageBase64(final String base64, ImageOptions options, Callback errorCallback) {
+        if (options.getLogoKey() != null) {
+            printLogoImage(ImagePayloads.base64Source(base64), ImagePayloads.base64Loader(base64, options), options,
+                    errorCallback);
+            return;
+        }
+        if (options.isStreaming()) {
+            printImageStreaming(Base64.decode(base64, Base64.DEFAULT), options, errorCallback);
             return;
         }
+        printImage(ImagePayloads.base64Source(base64), ImagePayloads.base64Loader(base64, options), options,
+                errorCallback);
+    }
 
-        Log.v(LOG_TAG, "start to print image data " + bitmapImage);
+    private void printImage(String source, ImagePayloads.BitmapLoader loader, ImageOptions options,
+                            Callback errorCallback) {
+        Log.v(LOG_TAG, "start to print image data " + source);
         boolean isConnected = openConnection(errorCallback);
         if (isConnected) {
             Log.v(LOG_TAG, "Connected to device");
-            int[][] pixels = getPixelsSlow(bitmapImage, imageWidth, imageHeight);
-
-            int b = mUsbDeviceConnection.bulkTransfer(mEndPoint, SET_LINE_SPACE_24, SET_LINE_SPACE_24.length, 100000);
-
-            b = mUsbDeviceConnection.bulkTransfer(mEndPoint, CENTER_ALIGN, CENTER_ALIGN.length, 100000);
-
-            for (int y = 0; y < pixels.length; y += 24) {
-                // Like I said before, when done sending data,
-                // the printer will resume to normal text printing
-                mUsbDeviceConnection.bulkTransfer(mEndPoint, SELECT_BIT_IMAGE_MODE, SELECT_BIT_IMAGE_MODE.length,
-                        100000);
-
-                // Set nL and nH based on the width of the image
-                byte[] row = new byte[] { (byte) (0x00ff & pixels[y].length),
-                        (byte) ((0xff00 & pixels[y].length) >> 8) };
-
-                mUsbDeviceConnection.bulkTransfer(mEndPoint, row, row.length, 100000);
+            ImageEncoding encoding = resolveImageEncoding(options);
 
-                for (int x = 0; x < pixels[y].length; x++) {
-                    // for each stripe, recollect 3 bytes (3 bytes = 24 bits)
-                    byte[] slice = recollectSlice(y, x, pixels);
-                    mUsbDeviceConnection.bulkTransfer(mEndPoint, slice, slice.length, 100000);
+            try {
+                byte[] payload = ImagePayloads.get(source, options, encoding, loader);
+                if (payload == null) {
+                    errorCallback.invoke("image not found");
+                    return;
                 }
 
-                // Do a line feed, if not the printing will resume on the same line
-                mUsbDeviceConnection.bulkTransfer(mEndPoint, LINE_FEED, LINE_FEED.length, 100000);
+                UsbBulkOutputStream printerOutputStream = new UsbBulkOutputStream(mUsbDeviceConnection, mEndPoint);
+                printerOutputStream.write(payload);
+                printerOutputStream.flush();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "failed to print image", e);
+                errorCallback.invoke("Printing failed: " + e.getMessage());
             }
-
-            mUsbDeviceConnection.bulkTransfer(mEndPoint, SET_LINE_SPACE_32, SET_LINE_SPACE_32.length, 100000);
-            mUsbDeviceConnection.bulkTransfer(mEndPoint, LINE_FEED, LINE_FEED.length, 100000);
         } else {
             String msg = "failed to connected to device";
             Log.v(LOG_TAG, msg);
@@ -452,51 +448,180 @@ public void printRawData(String data, Callback errorCallback) {
     }
 
     @Override
-    public void printImageBase64(final Bitmap bitmapImage, int imageWidth, int imageHeight, Callback errorCallback) {
-        if (bitmapImage == null) {
+    public void printMarkup(String text, MarkupCompiler compiler, Callback errorCallback) {
+        boolean isConnected = openConnection(errorCallback);
+        if (!isConnected) {
+            return;
+        }
+
+        final UsbBulkOutputStream printerOutputStream = new UsbBulkOutputStream(mUsbDeviceConnection, mEndPoint);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compiler.compile(text, printerOutputStream);
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "failed to print data", e);
+                    errorCallback.invoke("Printing failed: " + e.getMessage());
+                }
+            }
+        }).start();
+    }
+
+    private void printLogoImage(String source, ImagePayloads.BitmapLoader loader, ImageOptions options,
+                                Callback errorCallback) {
+        PrinterDeviceId printerDeviceId = currentPrinterDeviceId();
+        byte[] payload;
+        try {
+            payload = mStoredLogos.payload(printerDeviceId, source, options, loader);
+        } catch (IllegalArgumentException | IOException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        if (payload == null) {
             errorCallback.invoke("image not found");
             return;
         }
+        if (!sendPayload(payload, errorCallback)) {
+            mStoredLogos.forget(printerDeviceId, options.getLogoKey());
+        }
+    }
+
+    @Override
+    public void printLogo(String key, Callback errorCallback) {
+        byte[] payload;
+        try {
+            payload = mStoredLogos.printCommand(currentPrinterDeviceId(), key);
+        } catch (IllegalArgumentException | IOException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        printPayload(payload, errorCallback);
+    }
 
-        Log.v(LOG_TAG, "start to print image data " + bitmapImage);
+    private void printImageStreaming(byte[] imageData, ImageOptions options, Callback errorCallback) {
         boolean isConnected = openConnection(errorCallback);
-        if (isConnected) {
-            Log.v(LOG_TAG, "Connected to device");
-            int[][] pixels = getPixelsSlow(bitmapImage, imageWidth, imageHeight);
+        if (!isConnected) {
+            return;
+        }
 
-            int b = mUsbDeviceConnection.bulkTransfer(mEndPoint, SET_LINE_SPACE_24, SET_LINE_SPACE_24.length, 100000);
+        try {
+            UsbBulkOutputStream printerOutputStream = new UsbBulkOutputStream(mUsbDeviceConnection, mEndPoint);
+            if (!StreamingImageEncoder.encode(imageData, options, resolveImageEncoding(options), printerOutputStream)) {
+                errorCallback.invoke("image not found");
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "failed to print image", e);
+            errorCallback.invoke("Printing failed: " + e.getMessage());
+        }
+    }
 
-            b = mUsbDeviceConnection.bulkTransfer(mEndPoint, CENTER_ALIGN, CENTER_ALIGN.length, 100000);
+    private PrinterDeviceId currentPrinterDeviceId() {
+        return mUsbDevice != null
+                ? USBPrinterDeviceId.valueOf(mUsbDevice.getVendorId(), mUsbDevice.getProductId()) : null;
+    }
 
-            for (int y = 0; y < pixels.length; y += 24) {
-                // Like I said before, when done sending data,
-                // the printer will resume to normal text printing
-                mUsbDeviceConnection.bulkTransfer(mEndPoint, SELECT_BIT_IMAGE_MODE, SELECT_BIT_IMAGE_MODE.length,
-                        100000);
+    private ImageEncoding printerImageEncoding() {
+        ImageEncoding encoding = mImageEncodings.get(currentPrinterDeviceId());
+        return encoding != null ? encoding : ImageEncoding.DEFAULT;
+    }
 
-                // Set nL and nH based on the width of the image
-                byte[] row = new byte[] { (byte) (0x00ff & pixels[y].length),
-                        (byte) ((0xff00 & pixels[y].length) >> 8) };
+    private ImageEncoding resolveImageEncoding(ImageOptions options) {
+        return options.resolveEncoding(printerImageEncoding());
+    }
 
-                mUsbDeviceConnection.bulkTransfer(mEndPoint, row, row.length, 100000);
+    @Override
+    public void setImageEncoding(PrinterDeviceId printerDeviceId, ImageEncoding encoding) {
+        mImageEncodings.put(printerDeviceId, encoding);
+    }
 
-                for (int x = 0; x < pixels[y].length; x++) {
-                    // for each stripe, recollect 3 bytes (3 bytes = 24 bits)
-                    byte[] slice = recollectSlice(y, x, pixels);
-                    mUsbDeviceConnection.bulkTransfer(mEndPoint, slice, slice.length, 100000);
-                }
+    @Override
+    public boolean prefetchImageData(String imageUrl, ImageOptions options) throws IOException {
+        return ImagePayloads.get(ImagePayloads.urlSource(imageUrl), options, resolveImageEncoding(options),
+                ImagePayloads.urlLoader(imageUrl, options)) != null;
+    }
+
+    @Override
+    public void setPrinterCapabilities(PrinterDeviceId printerDeviceId, PrinterCapabilities capabilities) {
+        mCapabilities.put(printerDeviceId, capabilities);
+    }
 
-                // Do a line feed, if not the printing will resume on the same line
-                mUsbDeviceConnection.bulkTransfer(mEndPoint, LINE_FEED, LINE_FEED.length, 100000);
+    private PrinterCapabilities resolveCapabilities() {
+        PrinterCapabilities capabilities = mCapabilities.get(currentPrinterDeviceId());
+        return capabilities != null ? capabilities : PrinterCapabilities.DEFAULT;
+    }
+
+    @Override
+    public void printQRCode(QRCodeCommand qrCode, Callback errorCallback) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try {
+            if (resolveCapabilities().isNativeQRCode()) {
+                qrCode.writeNative(payload);
+            } else {
+                qrCode.writeRaster(printerImageEncoding(), payload);
             }
+        } catch (IllegalArgumentException | IOException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        printPayload(payload.toByteArray(), errorCallback);
+    }
 
-            mUsbDeviceConnection.bulkTransfer(mEndPoint, SET_LINE_SPACE_32, SET_LINE_SPACE_32.length, 100000);
-            mUsbDeviceConnection.bulkTransfer(mEndPoint, LINE_FEED, LINE_FEED.length, 100000);
-        } else {
-            String msg = "failed to connected to device";
-            Log.v(LOG_TAG, msg);
-            errorCallback.invoke(msg);
+    @Override
+    public void printBarcode(BarcodeCommand barcode, Callback errorCallback) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try {
+            if (resolveCapabilities().isNativeBarcode(barcode.getSymbology())) {
+                barcode.writeNative(payload);
+            } else {
+                barcode.writeRaster(printerImageEncoding(), payload);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
         }
+        printPayload(payload.toByteArray(), errorCallback);
+    }
+
+    @Override
+    public void printTextAsImage(String text, TextStyle style, int width, Callback errorCallback) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try {
+            MonochromeBitmap image = TextImageRenderer.getInstance().render(text, style, width);
+            EscPosImageEncoder.encode(image, printerImageEncoding(), true, payload);
+        } catch (IllegalArgumentException | IOException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+        printPayload(payload.toByteArray(), errorCallback);
+    }
 
+    @Override
+    public void printPayload(byte[] payload, Callback errorCallback) {
+        sendPayload(payload, errorCallback);
+    }
+
+    /**
+     * Reports a failure through errorCallback, so callers such as a logo
+     * define only have to undo their own bookkeeping.
+     *
+     * @return false when the payload could not be written to the printer
+     */
+    private boolean sendPayload(byte[] payload, Callback errorCallback) {
+        boolean isConnected = openConnection(errorCallback);
+        if (!isConnected) {
+            return false;
+        }
+
+        try {
+            UsbBulkOutputStream printerOutputStream = new UsbBulkOutputStream(mUsbDeviceConnection, mEndPoint);
+            printerOutputStream.write(payload);
+            printerOutputStream.flush();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "failed to print data", e);
+            errorCallback.invoke("Printing failed: " + e.getMessage());
+            return false;
+        }
+        return true;
     }
 }
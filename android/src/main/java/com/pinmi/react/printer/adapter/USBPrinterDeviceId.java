@@ -26,7 +26,6 @@ public class USBPrinterDeviceId extends PrinterDeviceId {
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
 
         USBPrinterDeviceId that = (USBPrinterDeviceId) o;
 
@@ -0,0 +1,60 @@
+package com.pinmi.react.printer.adapter;
+
+import android.hardware.usb.UsbDeviceConnection;
+import android.hardware.usb.UsbEndpoint;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffers writes and sends them to a bulk OUT endpoint in large transfers,
+ * so encoders can target USB printers the same way as sockets.
+ */
+class UsbBulkOutputStream extends OutputStream {
+    private static final int TRANSFER_SIZE = 16 * 1024;
+    private static final int TIMEOUT = 100000;
+
+    private final UsbDeviceConnection mConnection;
+    private final UsbEndpoint mEndPoint;
+    private final byte[] mBuffer = new byte[TRANSFER_SIZE];
+    private int mCount;
+
+    UsbBulkOutputStream(UsbDeviceConnection connection, UsbEndpoint endPoint) {
+        this.mConnection = connection;
+        this.mEndPoint = endPoint;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (mCount == mBuffer.length) {
+            flush();
+        }
+        mBuffer[mCount++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (mCount == mBuffer.length) {
+                flush();
+            }
+            int chunk = Math.min(len, mBuffer.length - mCount);
+            System.arraycopy(b, off, mBuffer, mCount, chunk);
+            mCount += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (mCount == 0) {
+            return;
+        }
+        int sent = mConnection.bulkTransfer(mEndPoint, mBuffer, mCount, TIMEOUT);
+        mCount = 0;
+        if (sent < 0) {
+            throw new IOException("USB bulk transfer failed");
+        }
+    }
+}
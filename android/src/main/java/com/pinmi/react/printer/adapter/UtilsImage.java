@@ -1,98 +1,91 @@
 package com.pinmi.react.printer.adapter;
 
 import android.graphics.Bitmap;
-import android.graphics.Color;
+
+import com.pinmi.react.printer.raster.BandCache;
+import com.pinmi.react.printer.raster.DitherMode;
+import com.pinmi.react.printer.raster.ImageDither;
+import com.pinmi.react.printer.raster.ImageEncoding;
+import com.pinmi.react.printer.raster.ImageResampler;
+import com.pinmi.react.printer.raster.MonochromeBitmap;
+import com.pinmi.react.printer.raster.RasterPipeline;
+
+import java.io.IOException;
+import java.io.OutputStream;
 
 public class UtilsImage {
-    public static Bitmap getBitmapResized(Bitmap image, float decreaseSizeBy, int imageWidth, int imageHeight) {
-        int imageWidthForResize = image.getWidth();
-        int imageHeightForResize = image.getHeight();
-        if (imageWidth > 0) {
-            imageWidthForResize = imageWidth;
-        }
+    // Keep the bulk pixel buffer between prints, but do not pin huge images in memory.
+    private static final int MAX_RETAINED_PIXELS = 1 << 20;
+    private static int[] sPixelBuffer;
 
-        if (imageHeight > 0) {
-            imageHeightForResize = imageHeight;
-        }
-        return Bitmap.createScaledBitmap(image, (int) (imageWidthForResize * decreaseSizeBy),
-                (int) (imageHeightForResize * decreaseSizeBy), true);
+    public static boolean shouldPrintColor(int col) {
+        return ImageDither.luminance(col) < ImageDither.DEFAULT_THRESHOLD;
     }
 
-    public static int getRGB(Bitmap bmpOriginal, int col, int row) {
-        // get one pixel color
-        int pixel = bmpOriginal.getPixel(col, row);
-        // retrieve color of all channels
-        int R = Color.red(pixel);
-        int G = Color.green(pixel);
-        int B = Color.blue(pixel);
-        return Color.rgb(R, G, B);
+    public static MonochromeBitmap getMonochromeBitmap(Bitmap source, int imageWidth, int imageHeight) {
+        return getMonochromeBitmap(source, imageWidth, imageHeight, DitherMode.NONE, ImageDither.DEFAULT_THRESHOLD);
     }
 
-    public static Bitmap resizeTheImageForPrinting(Bitmap image, int imageWidth, int imageHeight) {
-        // making logo size 150 or less pixels
-        int width = image.getWidth();
-        int height = image.getHeight();
-        if (Integer.toString(imageWidth) != null || Integer.toString(imageHeight) != null) {
-            return getBitmapResized(image, 1, imageWidth, imageHeight);
-        }
-        if (width > 200 || height > 200) {
-            float decreaseSizeBy;
-            if (width > height) {
-                decreaseSizeBy = (200.0f / width);
-            } else {
-                decreaseSizeBy = (200.0f / height);
-            }
-            return getBitmapResized(image, decreaseSizeBy, 0, 0);
+    /**
+     * Scales the image for printing and dithers it into a packed 1-bit plane.
+     * The source pixels are resampled straight into the reused pixel buffer,
+     * so no scaled bitmap is created, then handed to {@link RasterPipeline}.
+     */
+    public static synchronized MonochromeBitmap getMonochromeBitmap(Bitmap source, int imageWidth, int imageHeight,
+                                                                    DitherMode ditherMode, int threshold) {
+        int width = imageWidth > 0 ? imageWidth : source.getWidth();
+        int height = imageHeight > 0 ? imageHeight : source.getHeight();
+        int[] pixels = obtainPixelBuffer(width * height);
+        int[] histogram = new int[256];
+        readScaled(source, width, height, pixels, histogram);
+
+        MonochromeBitmap result = RasterPipeline.binarizeGray(pixels, width, height, ditherMode, threshold,
+                histogram);
+
+        if (pixels.length > MAX_RETAINED_PIXELS) {
+            sPixelBuffer = null;
         }
-        return image;
+        return result;
     }
 
-    public static boolean shouldPrintColor(int col) {
-        final int threshold = 127;
-        int a, r, g, b, luminance;
-        a = (col >> 24) & 0xff;
-        if (a != 0xff) {// Ignore transparencies
-            return false;
-        }
-        r = (col >> 16) & 0xff;
-        g = (col >> 8) & 0xff;
-        b = col & 0xff;
+    /**
+     * Scales the image like {@link #getMonochromeBitmap} and writes it with
+     * {@link RasterPipeline#encodeBands}, taking unchanged bands from the cache.
+     */
+    public static synchronized void encodeBands(Bitmap source, int imageWidth, int imageHeight, DitherMode ditherMode,
+                                                int threshold, ImageEncoding encoding, boolean skipBlankRows,
+                                                BandCache cache, OutputStream out) throws IOException {
+        int width = imageWidth > 0 ? imageWidth : source.getWidth();
+        int height = imageHeight > 0 ? imageHeight : source.getHeight();
+        int[] pixels = obtainPixelBuffer(width * height);
+        int[] histogram = new int[256];
+        readScaled(source, width, height, pixels, histogram);
 
-        luminance = (int) (0.299 * r + 0.587 * g + 0.114 * b);
+        RasterPipeline.encodeBands(pixels, width, height, ditherMode, threshold, histogram, encoding, skipBlankRows,
+                cache, out);
 
-        return luminance < threshold;
+        if (pixels.length > MAX_RETAINED_PIXELS) {
+            sPixelBuffer = null;
+        }
     }
 
-    public static byte[] recollectSlice(int y, int x, int[][] img) {
-        byte[] slices = new byte[]{0, 0, 0};
-        for (int yy = y, i = 0; yy < y + 24 && i < 3; yy += 8, i++) {
-            byte slice = 0;
-            for (int b = 0; b < 8; b++) {
-                int yyy = yy + b;
-                if (yyy >= img.length) {
-                    continue;
-                }
-                int col = img[yyy][x];
-                boolean v = shouldPrintColor(col);
-                slice |= (byte) ((v ? 1 : 0) << (7 - b));
+    /**
+     * Reads the bitmap scaled to width x height into pixels as opaque gray,
+     * adding their luminance histogram to histogram unless it is null.
+     */
+    static void readScaled(final Bitmap bitmap, int width, int height, int[] pixels, int[] histogram) {
+        ImageResampler.resample(new ImageResampler.RowSource() {
+            @Override
+            public void readRows(int top, int count, int[] into) {
+                bitmap.getPixels(into, 0, bitmap.getWidth(), 0, top, bitmap.getWidth(), count);
             }
-            slices[i] = slice;
-        }
-        return slices;
+        }, bitmap.getWidth(), bitmap.getHeight(), width, height, pixels, histogram);
     }
 
-    public static int[][] getPixelsSlow(Bitmap image2, int imageWidth, int imageHeight) {
-
-        Bitmap image = resizeTheImageForPrinting(image2, imageWidth, imageHeight);
-
-        int width = image.getWidth();
-        int height = image.getHeight();
-        int[][] result = new int[height][width];
-        for (int row = 0; row < height; row++) {
-            for (int col = 0; col < width; col++) {
-                result[row][col] = getRGB(image, col, row);
-            }
+    private static int[] obtainPixelBuffer(int size) {
+        if (sPixelBuffer == null || sPixelBuffer.length < size) {
+            sPixelBuffer = new int[size];
         }
-        return result;
+        return sPixelBuffer;
     }
 }
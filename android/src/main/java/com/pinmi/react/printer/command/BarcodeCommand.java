@@ -0,0 +1,148 @@
+package com.pinmi.react.printer.command;
+
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.pinmi.react.printer.raster.EscPosImageEncoder;
+import com.pinmi.react.printer.raster.ImageEncoding;
+import com.pinmi.react.printer.raster.MonochromeBitmap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A 1D barcode printed with GS h / GS w / GS H / GS k, or, for printers
+ * without the symbology, rasterized here with the same module width and
+ * height. The human readable text of a rasterized code is sent as text.
+ */
+public class BarcodeCommand {
+    private final static byte ESC = 0x1B;
+    private final static byte GS = 0x1D;
+    private final static Charset US_ASCII = Charset.forName("US-ASCII");
+
+    private final static byte[] CENTER_ALIGN = {ESC, 0x61, 0x31};
+    private final static byte[] LINE_FEED = {0x0A};
+
+    public final static int MIN_WIDTH = 1;
+    public final static int MAX_WIDTH = 6;
+    private final static String[] HRI_POSITIONS = {"NONE", "ABOVE", "BELOW", "BOTH"};
+
+    private final String data;
+    private final BarcodeSymbology symbology;
+    private final int height;
+    private final int width;
+    private final int hriPosition;
+
+    /**
+     * @param height      bar height in dots, 1 to 255
+     * @param width       module width in dots, 1 to 6
+     * @param hriPosition "none", "above", "below" or "both"
+     */
+    public BarcodeCommand(String data, BarcodeSymbology symbology, int height, int width, String hriPosition) {
+        if (data == null || data.isEmpty()) {
+            throw new IllegalArgumentException("barcode data is missing");
+        }
+        if (!symbology.accepts(data)) {
+            throw new IllegalArgumentException("invalid " + symbology + " barcode data: " + data);
+        }
+        if (height < 1 || height > 255) {
+            throw new IllegalArgumentException("barcode height must be from 1 to 255");
+        }
+        if (width < MIN_WIDTH || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("barcode width must be from " + MIN_WIDTH + " to " + MAX_WIDTH);
+        }
+        int position = -1;
+        for (int i = 0; hriPosition != null && i < HRI_POSITIONS.length; i++) {
+            if (HRI_POSITIONS[i].equals(hriPosition.trim().toUpperCase(Locale.ROOT))) {
+                position = i;
+            }
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException("unknown barcode text position: " + hriPosition);
+        }
+        this.data = data;
+        this.symbology = symbology;
+        this.height = height;
+        this.width = width;
+        this.hriPosition = position;
+    }
+
+    public BarcodeSymbology getSymbology() {
+        return symbology;
+    }
+
+    /**
+     * GS k function B. CODE128 data is sent in code set B unless it starts
+     * with "{", then it is taken as already carrying its code set selectors.
+     */
+    public void writeNative(OutputStream out) throws IOException {
+        byte[] bytes = data.getBytes(US_ASCII);
+        if (symbology == BarcodeSymbology.CODE128 && !data.startsWith("{")) {
+            bytes = ("{B" + data.replace("{", "{{")).getBytes(US_ASCII);
+        }
+        if (bytes.length > 255) {
+            throw new IllegalArgumentException("barcode data is too long");
+        }
+        out.write(CENTER_ALIGN);
+        out.write(new byte[]{GS, 0x48, (byte) hriPosition});
+        out.write(new byte[]{GS, 0x68, (byte) height});
+        out.write(new byte[]{GS, 0x77, (byte) width});
+        out.write(new byte[]{GS, 0x6B, (byte) symbology.code, (byte) bytes.length});
+        out.write(bytes);
+        out.flush();
+    }
+
+    public void writeRaster(ImageEncoding encoding, OutputStream out) throws IOException {
+        MonochromeBitmap image = rasterize();
+        if (hriPosition == 1 || hriPosition == 3) {
+            writeText(out);
+        }
+        EscPosImageEncoder.encode(image, encoding, true, out);
+        if (hriPosition == 2 || hriPosition == 3) {
+            writeText(out);
+        }
+        out.flush();
+    }
+
+    MonochromeBitmap rasterize() {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.MARGIN, 0);
+        BitMatrix modules;
+        try {
+            modules = new MultiFormatWriter().encode(rasterData(), symbology.format, 0, 1, hints);
+        } catch (WriterException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid " + symbology + " barcode data: " + data);
+        }
+        MonochromeBitmap image = new MonochromeBitmap(modules.getWidth() * width, height);
+        byte[] bits = image.getData();
+        int bytesPerRow = image.getBytesPerRow();
+        for (int x = 0; x < image.getWidth(); x++) {
+            if (modules.get(x / width, 0)) {
+                bits[x >> 3] |= 0x80 >>> (x & 7);
+            }
+        }
+        for (int y = 1; y < height; y++) {
+            System.arraycopy(bits, 0, bits, y * bytesPerRow, bytesPerRow);
+        }
+        return image;
+    }
+
+    // ZXing picks the CODE128 code sets itself, so a leading selector is dropped.
+    private String rasterData() {
+        if (symbology == BarcodeSymbology.CODE128 && data.matches("\\{[ABC].*")) {
+            return data.substring(2).replace("{{", "{");
+        }
+        return data;
+    }
+
+    private void writeText(OutputStream out) throws IOException {
+        out.write(CENTER_ALIGN);
+        out.write(rasterData().getBytes(US_ASCII));
+        out.write(LINE_FEED);
+    }
+}
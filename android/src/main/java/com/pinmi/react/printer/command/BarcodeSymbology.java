@@ -0,0 +1,42 @@
+package com.pinmi.react.printer.command;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.Locale;
+
+/**
+ * 1D symbologies with their GS k function B code and the ZXing format used
+ * to rasterize them for printers that lack the symbology.
+ */
+public enum BarcodeSymbology {
+    UPC_A(65, BarcodeFormat.UPC_A, "[0-9]{11,12}"),
+    EAN13(67, BarcodeFormat.EAN_13, "[0-9]{12,13}"),
+    CODE39(69, BarcodeFormat.CODE_39, "[0-9A-Z $%*+\\-./]{1,255}"),
+    ITF(70, BarcodeFormat.ITF, "([0-9]{2}){1,127}"),
+    CODE128(73, BarcodeFormat.CODE_128, "[\\x00-\\x7f]{1,253}");
+
+    final int code;
+    final BarcodeFormat format;
+    private final String pattern;
+
+    BarcodeSymbology(int code, BarcodeFormat format, String pattern) {
+        this.code = code;
+        this.format = format;
+        this.pattern = pattern;
+    }
+
+    boolean accepts(String data) {
+        return data.matches(pattern);
+    }
+
+    public static BarcodeSymbology fromName(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("barcode symbology is missing");
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace("-", "_"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown barcode symbology: " + name);
+        }
+    }
+}
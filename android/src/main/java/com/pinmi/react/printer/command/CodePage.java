@@ -0,0 +1,154 @@
+package com.pinmi.react.printer.command;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.Locale;
+
+/**
+ * Printer character tables. Single-byte pages are selected with ESC t n and
+ * encoded through a char to byte table built once from the JDK charset;
+ * double-byte pages are entered with FS &amp; and encoded by a per-thread
+ * cached encoder.
+ */
+public enum CodePage {
+    CP437(0, "IBM437"),
+    CP850(2, "IBM850"),
+    CP860(3, "IBM860"),
+    CP863(4, "IBM863"),
+    CP865(5, "IBM865"),
+    CP1252(16, "windows-1252"),
+    CP866(17, "IBM866"),
+    CP852(18, "IBM852"),
+    CP858(19, "IBM00858"),
+    GB18030(-1, "GB18030"),
+    BIG5(-1, "Big5"),
+    SHIFT_JIS(-1, "Shift_JIS");
+
+    final int table;
+    private final String charsetName;
+    private final ThreadLocal<CharsetEncoder> encoder;
+    // High byte of the char to a 256 entry row; 0 marks an unmapped char.
+    private volatile byte[][] rows;
+
+    CodePage(int table, String charsetName) {
+        this.table = table;
+        this.charsetName = charsetName;
+        this.encoder = new ThreadLocal<CharsetEncoder>() {
+            @Override
+            protected CharsetEncoder initialValue() {
+                Charset charset = charset();
+                return charset != null ? charset.newEncoder() : null;
+            }
+        };
+    }
+
+    boolean isMultiByte() {
+        return table < 0;
+    }
+
+    Charset charset() {
+        return Charset.isSupported(charsetName) ? Charset.forName(charsetName) : null;
+    }
+
+    /**
+     * The encoder of a double-byte page for the calling thread, or null when
+     * the platform lacks the charset.
+     */
+    CharsetEncoder encoder() {
+        return encoder.get();
+    }
+
+    /**
+     * The byte of a non-ASCII char in a single-byte page, or -1.
+     */
+    int lookup(char c) {
+        byte[][] table = rows;
+        if (table == null) {
+            table = buildRows();
+            rows = table;
+        }
+        byte[] row = table[c >>> 8];
+        if (row == null) {
+            return -1;
+        }
+        int b = row[c & 0xFF] & 0xFF;
+        return b != 0 ? b : -1;
+    }
+
+    /**
+     * Whether the page has the code point at {@code index}, encoded through the
+     * caller's scratch buffers: two chars and enough bytes for one character.
+     */
+    boolean canEncode(CharSequence text, int index, int end, CharBuffer chars, ByteBuffer bytes) {
+        if (!isMultiByte()) {
+            return lookup(text.charAt(index)) >= 0;
+        }
+        CharsetEncoder encoder = encoder();
+        if (encoder == null) {
+            return false;
+        }
+        // A run that stopped at an unmappable char leaves the encoder mid-state.
+        encoder.reset();
+        chars.clear();
+        chars.put(text.charAt(index));
+        if (charCount(text, index, end) == 2) {
+            chars.put(text.charAt(index + 1));
+        }
+        chars.flip();
+        bytes.clear();
+        return !encoder.encode(chars, bytes, true).isError() && !chars.hasRemaining();
+    }
+
+    private byte[][] buildRows() {
+        byte[][] table = new byte[256][];
+        Charset charset = charset();
+        if (charset == null) {
+            return table;
+        }
+        byte[] single = new byte[1];
+        for (int b = 0x80; b <= 0xFF; b++) {
+            single[0] = (byte) b;
+            String decoded = new String(single, charset);
+            char c = decoded.charAt(0);
+            if (decoded.length() != 1 || c < 0x80 || c == '\uFFFD') {
+                continue;
+            }
+            byte[] row = table[c >>> 8];
+            if (row == null) {
+                row = new byte[256];
+                table[c >>> 8] = row;
+            }
+            if (row[c & 0xFF] == 0) {
+                row[c & 0xFF] = (byte) b;
+            }
+        }
+        return table;
+    }
+
+    static int charCount(CharSequence text, int index, int end) {
+        return Character.isHighSurrogate(text.charAt(index)) && index + 1 < end
+                && Character.isLowSurrogate(text.charAt(index + 1)) ? 2 : 1;
+    }
+
+    static CodePage forCharset(Charset charset) {
+        for (CodePage page : values()) {
+            if (page.charsetName.equalsIgnoreCase(charset.name())) {
+                return page;
+            }
+        }
+        return null;
+    }
+
+    public static CodePage fromName(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("code page is missing");
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace("-", "_"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown code page: " + name);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.pinmi.react.printer.command;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encodes text for the printer through one reusable buffer. With several
+ * code pages, every char stays in the current table while it can and
+ * otherwise switches to the first page that has it, writing ESC t or
+ * FS &amp; / FS . as needed; chars no page has become "?". The printer has a
+ * single double-byte table, so at most one double-byte page can be listed.
+ * Not thread safe: use one instance per print job.
+ */
+public class CodePageTranscoder {
+    private final static byte[] SELECT_KANJI = {28, 38};
+    private final static byte[] CANCEL_KANJI = {28, 46};
+    private final static int BUFFER_SIZE = 1024;
+
+    private final List<CodePage> pages;
+    private final CharsetEncoder fixedEncoder;
+    private final boolean kanjiPrinter;
+    private final OutputStream out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    // Scratch of CodePage.canEncode: one code point and its bytes.
+    private final CharBuffer probeChars = CharBuffer.allocate(2);
+    private final ByteBuffer probeBytes = ByteBuffer.allocate(8);
+    private final byte[] selectTable = {27, 116, 0};
+    private CodePage current;
+
+    /**
+     * Switches between the pages in order of preference. The printer table is
+     * taken as unknown, so the first non-ASCII char always selects one.
+     */
+    public CodePageTranscoder(List<CodePage> pages, OutputStream out) {
+        this.kanjiPrinter = checkPages(pages);
+        this.pages = pages;
+        this.fixedEncoder = null;
+        this.out = out;
+        // A single page is what the printer is set to, as with a plain charset.
+        this.current = pages.size() == 1 ? pages.get(0) : null;
+    }
+
+    /**
+     * Encodes everything in one charset without switching tables, through the
+     * table of a matching code page when there is one.
+     */
+    public CodePageTranscoder(Charset charset, OutputStream out) {
+        CodePage page = CodePage.forCharset(charset);
+        this.pages = page != null ? Collections.singletonList(page) : Collections.<CodePage>emptyList();
+        this.fixedEncoder = page != null ? null : charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.kanjiPrinter = false;
+        this.out = out;
+        this.current = page;
+    }
+
+    /**
+     * Rejects an empty list and more than one double-byte page: FS &amp; only
+     * enters the kanji mode, whose table is fixed by the printer model.
+     *
+     * @return whether the list has a double-byte page
+     */
+    static boolean checkPages(List<CodePage> pages) {
+        if (pages.isEmpty()) {
+            throw new IllegalArgumentException("code pages are missing");
+        }
+        CodePage multiByte = null;
+        for (CodePage page : pages) {
+            if (page.isMultiByte()) {
+                if (multiByte != null && multiByte != page) {
+                    throw new IllegalArgumentException("only one double-byte code page can be used, got "
+                            + multiByte + " and " + page);
+                }
+                multiByte = page;
+            }
+        }
+        return multiByte != null;
+    }
+
+    public void write(CharSequence text) throws IOException {
+        write(text, 0, text.length());
+    }
+
+    public void write(CharSequence text, int start, int end) throws IOException {
+        if (fixedEncoder != null) {
+            encodeRun(fixedEncoder, text, start, end);
+            return;
+        }
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                put((byte) c);
+                i++;
+                continue;
+            }
+            if (current != null) {
+                int next = encode(current, text, i, end);
+                if (next > i) {
+                    i = next;
+                    continue;
+                }
+            }
+            CodePage page = find(text, i, end);
+            if (page == null) {
+                put((byte) '?');
+                i += CodePage.charCount(text, i, end);
+                continue;
+            }
+            select(page);
+        }
+    }
+
+    /**
+     * Writes command bytes in order with the text around them.
+     */
+    public void writeBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.remaining()) {
+            drain();
+            if (bytes.length > buffer.capacity()) {
+                out.write(bytes);
+                return;
+            }
+        }
+        buffer.put(bytes);
+    }
+
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private int encode(CodePage page, CharSequence text, int start, int end) throws IOException {
+        if (page.isMultiByte()) {
+            CharsetEncoder encoder = page.encoder();
+            return encoder != null ? encodeRun(encoder, text, start, end) : start;
+        }
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            int b = c < 0x80 ? c : page.lookup(c);
+            if (b < 0) {
+                break;
+            }
+            put((byte) b);
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Encodes up to the first char the encoder cannot map and returns its index.
+     * The text is copied through a reused char buffer a chunk at a time.
+     */
+    private int encodeRun(CharsetEncoder encoder, CharSequence text, int start, int end) throws IOException {
+        if (start == end) {
+            return start;
+        }
+        encoder.reset();
+        int i = start;
+        CoderResult result;
+        while (i < end) {
+            int count = Math.min(end - i, chars.capacity());
+            chars.clear();
+            for (int k = 0; k < count; k++) {
+                chars.put(text.charAt(i + k));
+            }
+            chars.flip();
+            boolean last = i + count == end;
+            while ((result = encoder.encode(chars, buffer, last)).isOverflow()) {
+                drain();
+            }
+            // An underflow may leave a surrogate split by the chunk; it is copied again.
+            i += chars.position();
+            if (result.isError()) {
+                return i;
+            }
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+        return i;
+    }
+
+    private CodePage find(CharSequence text, int index, int end) {
+        for (CodePage page : pages) {
+            if (page != current && page.canEncode(text, index, end, probeChars, probeBytes)) {
+                return page;
+            }
+        }
+        return null;
+    }
+
+    private void select(CodePage page) throws IOException {
+        if (page.isMultiByte()) {
+            if (current == null || !current.isMultiByte()) {
+                writeBytes(SELECT_KANJI);
+            }
+        } else {
+            if (current == null ? kanjiPrinter : current.isMultiByte()) {
+                writeBytes(CANCEL_KANJI);
+            }
+            selectTable[2] = (byte) page.table;
+            writeBytes(selectTable);
+        }
+        current = page;
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put(b);
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+}
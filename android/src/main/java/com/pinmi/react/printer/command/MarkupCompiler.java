@@ -0,0 +1,122 @@
+package com.pinmi.react.printer.command;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Compiles the &lt;B&gt;, &lt;C&gt;, &lt;CM&gt;, &lt;D&gt; ... tag language of
+ * EPToolkit.ts to ESC/POS in one pass, encoding the text between tags
+ * straight into the output buffer. With a plain charset it produces the same
+ * bytes as exchange_text.
+ */
+public class MarkupCompiler {
+    private final static byte[] INIT_PRINTER = {27, 64};
+    private final static byte[] DEFAULT_LINE_SPACE = {27, 50};
+    private final static byte[] RESET = {27, 97, 0, 29, 33, 0, 27, 50};
+    private final static byte[] CUT = {27, 105};
+    private final static byte[] BEEP = {27, 66, 3, 2};
+    private final static byte[] TAILING_LINES = {10, 10, 10, 10, 10};
+
+    private final static byte[] NO_BYTES = {};
+    private final static byte[] END_SIZE = {27, 33, 0, 28, 33, 0};
+    private final static String[] TAGS = {
+            "<M>", "</M>", "<B>", "</B>", "<D>", "</D>", "<C>", "</C>", "<CM>", "</CM>",
+            "<CD>", "</CD>", "<CB>", "</CB>", "<L>", "</L>", "<R>", "</R>"};
+    private final static byte[][] TAG_BYTES = {
+            {27, 33, 16, 28, 33, 8}, END_SIZE,
+            {27, 33, 48, 28, 33, 12}, END_SIZE,
+            {27, 33, 32, 28, 33, 4}, END_SIZE,
+            {27, 97, 1}, NO_BYTES,
+            {27, 97, 1, 27, 33, 16, 28, 33, 8}, END_SIZE,
+            {27, 97, 1, 27, 33, 32, 28, 33, 4}, END_SIZE,
+            {27, 97, 1, 27, 33, 48, 28, 33, 12}, END_SIZE,
+            {27, 97, 0}, NO_BYTES,
+            {27, 97, 2}, NO_BYTES};
+
+    private final Charset charset;
+    private final List<CodePage> codePages;
+    private final boolean cut;
+    private final boolean beep;
+    private final boolean tailingLine;
+
+    /**
+     * Options as in EPToolkit: cut and tailingLine default to true, beep to false.
+     */
+    public MarkupCompiler(Charset charset, boolean cut, boolean beep, boolean tailingLine) {
+        this(charset, null, cut, beep, tailingLine);
+    }
+
+    /**
+     * Encodes the text in the given code pages, switching tables as needed.
+     */
+    public MarkupCompiler(List<CodePage> codePages, boolean cut, boolean beep, boolean tailingLine) {
+        this(null, codePages, cut, beep, tailingLine);
+        CodePageTranscoder.checkPages(codePages);
+    }
+
+    private MarkupCompiler(Charset charset, List<CodePage> codePages, boolean cut, boolean beep,
+                           boolean tailingLine) {
+        this.charset = charset;
+        this.codePages = codePages;
+        this.cut = cut;
+        this.beep = beep;
+        this.tailingLine = tailingLine;
+    }
+
+    public void compile(CharSequence text, OutputStream out) throws IOException {
+        CodePageTranscoder writer = codePages != null
+                ? new CodePageTranscoder(codePages, out) : new CodePageTranscoder(charset, out);
+        writer.writeBytes(INIT_PRINTER);
+        writer.writeBytes(DEFAULT_LINE_SPACE);
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char ch = text.charAt(i);
+            if (ch == '<') {
+                writer.write(text, start, i);
+                // An unknown tag only loses its "<", the rest stays text.
+                int tag = matchTag(text, i);
+                if (tag >= 0) {
+                    writer.writeBytes(TAG_BYTES[tag]);
+                    i += TAGS[tag].length() - 1;
+                }
+                start = i + 1;
+            } else if (ch == '\n') {
+                writer.write(text, start, i + 1);
+                writer.writeBytes(RESET);
+                start = i + 1;
+            }
+        }
+        writer.write(text, start, length);
+
+        if (tailingLine) {
+            writer.writeBytes(TAILING_LINES);
+        }
+        if (cut) {
+            writer.writeBytes(CUT);
+        }
+        if (beep) {
+            writer.writeBytes(BEEP);
+        }
+        writer.flush();
+    }
+
+    private static int matchTag(CharSequence text, int offset) {
+        for (int tag = 0; tag < TAGS.length; tag++) {
+            String name = TAGS[tag];
+            if (offset + name.length() > text.length()) {
+                continue;
+            }
+            int k = 0;
+            while (k < name.length() && text.charAt(offset + k) == name.charAt(k)) {
+                k++;
+            }
+            if (k == name.length()) {
+                return tag;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,120 @@
+package com.pinmi.react.printer.command;
+
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import com.google.zxing.qrcode.encoder.QRCode;
+import com.pinmi.react.printer.raster.EscPosImageEncoder;
+import com.pinmi.react.printer.raster.ImageEncoding;
+import com.pinmi.react.printer.raster.MonochromeBitmap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A QR code printed either by the printer itself with the GS ( k function
+ * sequence, or, for printers without it, rasterized here and sent as an image
+ * with the same module size.
+ */
+public class QRCodeCommand {
+    private final static byte ESC = 0x1B;
+    private final static byte GS = 0x1D;
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final static byte[] CENTER_ALIGN = {ESC, 0x61, 0x31};
+    private final static byte[] LINE_FEED = {0x0A};
+    private final static byte[] PRINT_SYMBOL = {GS, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x51, 0x30};
+
+    public final static int MIN_SIZE = 1;
+    public final static int MAX_SIZE = 16;
+    // GS ( k carries its parameter length in two bytes, three of them are taken by cn fn m.
+    private final static int MAX_DATA_LENGTH = 0xFFFF - 3;
+
+    private final byte[] data;
+    private final String text;
+    private final int size;
+    private final char errorLevel;
+    private final int model;
+
+    /**
+     * @param size       dots per module, 1 to 16
+     * @param errorLevel "L", "M", "Q" or "H"
+     * @param model      1 or 2
+     */
+    public QRCodeCommand(String text, int size, String errorLevel, int model) {
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("QR code data is missing");
+        }
+        if (size < MIN_SIZE || size > MAX_SIZE) {
+            throw new IllegalArgumentException("QR code size must be from " + MIN_SIZE + " to " + MAX_SIZE);
+        }
+        if (errorLevel == null || !errorLevel.trim().toUpperCase(Locale.ROOT).matches("[LMQH]")) {
+            throw new IllegalArgumentException("unknown QR code error level: " + errorLevel);
+        }
+        if (model != 1 && model != 2) {
+            throw new IllegalArgumentException("QR code model must be 1 or 2");
+        }
+        this.text = text;
+        this.data = text.getBytes(UTF_8);
+        if (data.length > MAX_DATA_LENGTH) {
+            throw new IllegalArgumentException("QR code data is too long");
+        }
+        this.size = size;
+        this.errorLevel = errorLevel.trim().toUpperCase(Locale.ROOT).charAt(0);
+        this.model = model;
+    }
+
+    /**
+     * fn 165 model, fn 167 module size, fn 169 error correction, fn 180 store
+     * the data and fn 181 print it.
+     */
+    public void writeNative(OutputStream out) throws IOException {
+        out.write(CENTER_ALIGN);
+        out.write(new byte[]{GS, 0x28, 0x6B, 0x04, 0x00, 0x31, 0x41, (byte) (48 + model), 0x00});
+        out.write(new byte[]{GS, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x43, (byte) size});
+        out.write(new byte[]{GS, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x45, (byte) (48 + "LMQH".indexOf(errorLevel))});
+        int length = data.length + 3;
+        out.write(new byte[]{GS, 0x28, 0x6B, (byte) (length & 0xff), (byte) ((length >> 8) & 0xff), 0x31, 0x50, 0x30});
+        out.write(data);
+        out.write(PRINT_SYMBOL);
+        out.write(LINE_FEED);
+        out.flush();
+    }
+
+    /**
+     * Sends the symbol as an image. Rasterized codes are always model 2, which
+     * every scanner reads.
+     */
+    public void writeRaster(ImageEncoding encoding, OutputStream out) throws IOException {
+        EscPosImageEncoder.encode(rasterize(), encoding, true, out);
+    }
+
+    MonochromeBitmap rasterize() {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        QRCode code;
+        try {
+            code = Encoder.encode(text, ErrorCorrectionLevel.valueOf(String.valueOf(errorLevel)), hints);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException("QR code data is too long");
+        }
+        ByteMatrix modules = code.getMatrix();
+        MonochromeBitmap image = new MonochromeBitmap(modules.getWidth() * size, modules.getHeight() * size);
+        byte[] bits = image.getData();
+        int bytesPerRow = image.getBytesPerRow();
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (modules.get(x / size, y / size) == 1) {
+                    bits[y * bytesPerRow + (x >> 3)] |= 0x80 >>> (x & 7);
+                }
+            }
+        }
+        return image;
+    }
+}
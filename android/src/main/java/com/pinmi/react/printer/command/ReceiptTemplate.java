@@ -0,0 +1,260 @@
+package com.pinmi.react.printer.command;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A receipt layout compiled once into encoded static bytes and slots.
+ * <ul>
+ * <li>{@code {{name}}} is replaced by a field value, {@code {{name:20}}} pads or cuts it to
+ * 20 columns, wide characters counting two, and {@code {{name:-8}}} right aligns it in 8.</li>
+ * <li>{@code {{#items}} ... {{/items}}} repeats its body for every map of a list, or renders
+ * it once for a map or {@code true}; fields are looked up in the item first.</li>
+ * </ul>
+ * Printing then only encodes the field values and copies the skeleton around them.
+ */
+public class ReceiptTemplate {
+    private final List<Node> nodes;
+    private final Charset charset;
+    private final int staticLength;
+
+    private ReceiptTemplate(List<Node> nodes, Charset charset, int staticLength) {
+        this.nodes = nodes;
+        this.charset = charset;
+        this.staticLength = staticLength;
+    }
+
+    public static ReceiptTemplate compile(String source, Charset charset) {
+        List<List<Node>> stack = new ArrayList<>();
+        List<String> sections = new ArrayList<>();
+        List<Node> current = new ArrayList<>();
+        int staticLength = 0;
+        int position = 0;
+        while (position < source.length()) {
+            int open = source.indexOf("{{", position);
+            int end = open < 0 ? source.length() : open;
+            if (end > position) {
+                byte[] bytes = source.substring(position, end).getBytes(charset);
+                current.add(new StaticNode(bytes));
+                staticLength += bytes.length;
+            }
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("unclosed template tag at " + open);
+            }
+            String tag = source.substring(open + 2, close).trim();
+            if (tag.startsWith("#")) {
+                sections.add(tag.substring(1).trim());
+                stack.add(current);
+                current = new ArrayList<>();
+            } else if (tag.startsWith("/")) {
+                String name = tag.substring(1).trim();
+                if (sections.isEmpty() || !sections.get(sections.size() - 1).equals(name)) {
+                    throw new IllegalArgumentException("unexpected template tag {{/" + name + "}}");
+                }
+                Node section = new SectionNode(sections.remove(sections.size() - 1), current);
+                current = stack.remove(stack.size() - 1);
+                current.add(section);
+            } else {
+                current.add(FieldNode.parse(tag));
+            }
+            position = close + 2;
+        }
+        if (!sections.isEmpty()) {
+            throw new IllegalArgumentException("unclosed template section {{#" + sections.get(0) + "}}");
+        }
+        return new ReceiptTemplate(current, charset, staticLength);
+    }
+
+    public byte[] render(Map<String, ?> data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(staticLength + 256);
+        try {
+            render(nodes, new Scope(data, null), out);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw.
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private void render(List<Node> body, Scope scope, OutputStream out) throws IOException {
+        for (Node node : body) {
+            node.render(this, scope, out);
+        }
+    }
+
+    private interface Node {
+        void render(ReceiptTemplate template, Scope scope, OutputStream out) throws IOException;
+    }
+
+    private static class StaticNode implements Node {
+        private final byte[] bytes;
+
+        StaticNode(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void render(ReceiptTemplate template, Scope scope, OutputStream out) throws IOException {
+            out.write(bytes);
+        }
+    }
+
+    private static class FieldNode implements Node {
+        private final String name;
+        private final int width;
+
+        FieldNode(String name, int width) {
+            this.name = name;
+            this.width = width;
+        }
+
+        static FieldNode parse(String tag) {
+            int colon = tag.lastIndexOf(':');
+            if (colon < 0) {
+                return new FieldNode(tag, 0);
+            }
+            try {
+                int width = Integer.parseInt(tag.substring(colon + 1).trim());
+                return new FieldNode(tag.substring(0, colon).trim(), width);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid template field width: {{" + tag + "}}");
+            }
+        }
+
+        @Override
+        public void render(ReceiptTemplate template, Scope scope, OutputStream out) throws IOException {
+            out.write(pad(format(scope.lookup(name)), width).getBytes(template.charset));
+        }
+    }
+
+    private static class SectionNode implements Node {
+        private final String name;
+        private final List<Node> body;
+
+        SectionNode(String name, List<Node> body) {
+            this.name = name;
+            this.body = body;
+        }
+
+        @Override
+        public void render(ReceiptTemplate template, Scope scope, OutputStream out) throws IOException {
+            Object value = scope.lookup(name);
+            if (value instanceof List) {
+                for (Object item : (List<?>) value) {
+                    template.render(body, scope.enter(item), out);
+                }
+            } else if (value instanceof Map || Boolean.TRUE.equals(value)) {
+                template.render(body, scope.enter(value), out);
+            }
+        }
+    }
+
+    private static class Scope {
+        private final Map<?, ?> values;
+        private final Scope parent;
+
+        Scope(Map<?, ?> values, Scope parent) {
+            this.values = values;
+            this.parent = parent;
+        }
+
+        Scope enter(Object value) {
+            return value instanceof Map ? new Scope((Map<?, ?>) value, this) : this;
+        }
+
+        Object lookup(String name) {
+            for (Scope scope = this; scope != null; scope = scope.parent) {
+                if (scope.values != null && scope.values.containsKey(name)) {
+                    return scope.values.get(name);
+                }
+            }
+            return null;
+        }
+    }
+
+    // Numbers from the JS bridge arrive as doubles; whole ones print without ".0".
+    static String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Double && (Double) value == Math.rint((Double) value)
+                && !Double.isInfinite((Double) value)) {
+            return Long.toString(((Double) value).longValue());
+        }
+        return value.toString();
+    }
+
+    /**
+     * Pads or cuts {@code text} to {@code |width|} printed columns. CJK and other wide
+     * characters take two columns and combining marks none; a cut never splits a
+     * surrogate pair or strips the marks of the last kept character.
+     */
+    static String pad(String text, int width) {
+        int columns = Math.abs(width);
+        if (width == 0) {
+            return text;
+        }
+        int used = 0;
+        int end = 0;
+        while (end < text.length()) {
+            int codePoint = text.codePointAt(end);
+            int next = used + displayWidth(codePoint);
+            if (next > columns) {
+                break;
+            }
+            used = next;
+            end += Character.charCount(codePoint);
+        }
+        if (used == columns && end == text.length()) {
+            return text;
+        }
+        int padding = columns - used;
+        StringBuilder builder = new StringBuilder(end + padding);
+        if (width < 0) {
+            for (int i = 0; i < padding; i++) {
+                builder.append(' ');
+            }
+        }
+        builder.append(text, 0, end);
+        if (width > 0) {
+            for (int i = 0; i < padding; i++) {
+                builder.append(' ');
+            }
+        }
+        return builder.toString();
+    }
+
+    // Columns of a character in a fixed pitch printer font, after wcwidth.
+    static int displayWidth(int codePoint) {
+        switch (Character.getType(codePoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.FORMAT:
+            case Character.CONTROL:
+                return 0;
+        }
+        if ((codePoint >= 0x1100 && codePoint <= 0x115F)
+                || (codePoint >= 0x2E80 && codePoint <= 0x303E)
+                || (codePoint >= 0x3041 && codePoint <= 0xA4CF)
+                || (codePoint >= 0xAC00 && codePoint <= 0xD7A3)
+                || (codePoint >= 0xF900 && codePoint <= 0xFAFF)
+                || (codePoint >= 0xFE30 && codePoint <= 0xFE4F)
+                || (codePoint >= 0xFF00 && codePoint <= 0xFF60)
+                || (codePoint >= 0xFFE0 && codePoint <= 0xFFE6)
+                || (codePoint >= 0x1F300 && codePoint <= 0x1F64F)
+                || (codePoint >= 0x1F900 && codePoint <= 0x1F9FF)
+                || (codePoint >= 0x20000 && codePoint <= 0x3FFFD)) {
+            return 2;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,31 @@
+package com.pinmi.react.printer.command;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled receipt templates by id, shared by all printer modules.
+ */
+public class TemplateRegistry {
+    private static final TemplateRegistry mInstance = new TemplateRegistry();
+
+    private final ConcurrentHashMap<String, ReceiptTemplate> mTemplates = new ConcurrentHashMap<>();
+
+    private TemplateRegistry() {
+    }
+
+    public static TemplateRegistry getInstance() {
+        return mInstance;
+    }
+
+    public void register(String templateId, ReceiptTemplate template) {
+        mTemplates.put(templateId, template);
+    }
+
+    public ReceiptTemplate get(String templateId) {
+        ReceiptTemplate template = mTemplates.get(templateId);
+        if (template == null) {
+            throw new IllegalArgumentException("unknown template: " + templateId);
+        }
+        return template;
+    }
+}
@@ -0,0 +1,133 @@
+package com.pinmi.react.printer.raster;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of encoded image bands, keyed by a 128-bit hash of
+ * the band's source pixels and encoding parameters. Receipts that differ in
+ * a few lines then only binarize and encode the bands that changed.
+ */
+public class BandCache {
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+
+    private final int maxBytes;
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private int size;
+    private long hits;
+    private long misses;
+
+    public BandCache(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Hashes {@code count} pixels from {@code offset} together with the
+     * parameters that decide how they are encoded.
+     */
+    static Key keyOf(int[] pixels, int offset, int count, long parameters) {
+        long h1 = PRIME_3 ^ parameters;
+        long h2 = Long.rotateLeft(parameters, 32) * PRIME_1 + count;
+        for (int i = offset, end = offset + count; i < end; i++) {
+            int pixel = pixels[i];
+            h1 = Long.rotateLeft(h1 + pixel * PRIME_2, 31) * PRIME_1;
+            h2 = Long.rotateLeft(h2 ^ (pixel * PRIME_3), 27) * PRIME_2 + PRIME_1;
+        }
+        return new Key(finish(h1), finish(h2 ^ h1));
+    }
+
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= PRIME_2;
+        h ^= h >>> 29;
+        h *= PRIME_3;
+        return h ^ (h >>> 32);
+    }
+
+    public synchronized byte[] get(Key key) {
+        byte[] bytes = entries.get(key);
+        if (bytes != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return bytes;
+    }
+
+    public synchronized void put(Key key, byte[] bytes) {
+        if (bytes.length > maxBytes) {
+            return;
+        }
+        byte[] previous = entries.put(key, bytes);
+        size += bytes.length - (previous != null ? previous.length : 0);
+        trimToSize(maxBytes);
+    }
+
+    public synchronized void trimToSize(int bytes) {
+        Iterator<Map.Entry<Key, byte[]>> eldest = entries.entrySet().iterator();
+        while (size > bytes && eldest.hasNext()) {
+            size -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Share of looked up bands that were served from the cache.
+     */
+    public synchronized double getReuseRatio() {
+        long lookups = hits + misses;
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    static final class Key {
+        private final long high;
+        private final long low;
+
+        Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return high == other.high && low == other.low;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (high ^ (high >>> 32));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.pinmi.react.printer.raster;
+
+/**
+ * Turns packed row-major dots into the column-major vertical bytes of ESC *,
+ * an 8 x 8 bit block at a time: the eight row bytes of a block are loaded into
+ * one long and transposed with three mask-and-shift steps.
+ */
+final class BitTranspose {
+
+    private BitTranspose() {
+    }
+
+    /**
+     * Transposes an 8 x 8 bit matrix whose first row is the most significant
+     * byte and first column the most significant bit of every byte.
+     */
+    static long transpose8x8(long x) {
+        long t = (x ^ (x >>> 7)) & 0x00AA00AA00AA00AAL;
+        x = x ^ t ^ (t << 7);
+        t = (x ^ (x >>> 14)) & 0x0000CCCC0000CCCCL;
+        x = x ^ t ^ (t << 14);
+        t = (x ^ (x >>> 28)) & 0x00000000F0F0F0F0L;
+        return x ^ t ^ (t << 28);
+    }
+
+    /**
+     * Writes the columns of the stripe of {@code bytesPerColumn * 8} rows from
+     * row y: for every x, bytesPerColumn bytes, the top dot in the most
+     * significant bit. Rows below the image are blank.
+     */
+    static void transposeStripe(MonochromeBitmap image, int y, int bytesPerColumn, byte[] out, int offset) {
+        byte[] data = image.getData();
+        int bytesPerRow = image.getBytesPerRow();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for (int k = 0; k < bytesPerColumn; k++) {
+            int top = y + k * 8;
+            int rows = Math.max(0, Math.min(8, height - top));
+            for (int bx = 0; bx < bytesPerRow; bx++) {
+                long block = 0;
+                for (int r = 0, i = top * bytesPerRow + bx; r < rows; r++, i += bytesPerRow) {
+                    block |= (long) (data[i] & 0xff) << (56 - 8 * r);
+                }
+                if (block != 0) {
+                    block = transpose8x8(block);
+                }
+                int x = bx << 3;
+                int columns = Math.min(8, width - x);
+                for (int c = 0, o = offset + x * bytesPerColumn + k; c < columns; c++, o += bytesPerColumn) {
+                    out[o] = (byte) (block >>> (56 - 8 * c));
+                }
+            }
+        }
+    }
+}
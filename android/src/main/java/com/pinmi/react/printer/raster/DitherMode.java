@@ -0,0 +1,26 @@
+package com.pinmi.react.printer.raster;
+
+import java.util.Locale;
+
+/**
+ * How gray levels are turned into printed and blank dots.
+ */
+public enum DitherMode {
+    /** Hard luminance threshold. */
+    NONE,
+    FLOYD_STEINBERG,
+    ATKINSON,
+    BAYER_4X4,
+    BAYER_8X8;
+
+    public static DitherMode fromName(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("dither mode is missing");
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown dither mode: " + name);
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.pinmi.react.printer.raster;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Turns a {@link MonochromeBitmap} into ESC/POS image commands.
+ */
+public class EscPosImageEncoder {
+    private final static byte ESC = 0x1B;
+    private final static byte GS = 0x1D;
+
+    private final static byte[] SET_LINE_SPACE_24 = new byte[]{ESC, 0x33, 24};
+    private final static byte[] SET_LINE_SPACE_32 = new byte[]{ESC, 0x33, 32};
+    private final static byte[] LINE_FEED = new byte[]{0x0A};
+    private final static byte[] CENTER_ALIGN = {ESC, 0x61, 0x31};
+    private final static byte[] PRINT_GRAPHICS = {GS, 0x28, 0x4C, 0x02, 0x00, 0x30, 0x32};
+    private final static byte FEED_DOTS = 0x4A; // ESC J n
+    private final static byte[] STAR_ENTER_RASTER = {ESC, 0x2A, 0x72, 0x41};
+    private final static byte[] STAR_QUIT_RASTER = {ESC, 0x2A, 0x72, 0x42};
+    // ESC * r M n NUL: raster data compression, 0 for none and 2 for TIFF PackBits.
+    private final static byte[] STAR_PLAIN = {ESC, 0x2A, 0x72, 0x4D, 0x30, 0};
+    private final static byte[] STAR_PACKBITS = {ESC, 0x2A, 0x72, 0x4D, 0x32, 0};
+
+    // Paper advance of one ESC * stripe at the line spacing set by writeHeader.
+    private final static int STRIPE_ADVANCE = 24;
+
+    // Rows per GS v 0 / GS ( L header, small enough for the receive buffer of common printers.
+    private final static int MAX_BLOCK_HEIGHT = 256;
+    // GS ( L carries its parameter length in two bytes.
+    private final static int MAX_GRAPHICS_PAYLOAD = 0xFFFF - 10;
+    // ESC * stripes encoded before the window is written out, and per parallel task.
+    private final static int STRIPES_PER_WINDOW = 64;
+    private final static int STRIPES_PER_TASK = 4;
+    // Shorter runs of blank raster rows stay in the block, a feed would not save a header.
+    private final static int MIN_BLANK_ROWS = 8;
+
+    private EscPosImageEncoder() {
+    }
+
+    /**
+     * @param trimWhitespace crop blank side margins and replace blank rows by paper feeds
+     */
+    public static void encode(MonochromeBitmap image, ImageEncoding encoding, boolean trimWhitespace,
+                              OutputStream out) throws IOException {
+        writeHeader(encoding, out);
+        // Star raster is always left aligned, cropping would move the image.
+        boolean crop = trimWhitespace && encoding != ImageEncoding.STAR_RASTER;
+        writeBand(crop ? cropMargins(image) : image, encoding, trimWhitespace, out);
+        writeFooter(encoding, out);
+    }
+
+    /**
+     * Printer setup sent once before the bands of an image.
+     */
+    public static void writeHeader(ImageEncoding encoding, OutputStream out) throws IOException {
+        if (encoding == ImageEncoding.STAR_RASTER) {
+            // ESC a feeds lines in Star line mode, so no alignment here.
+            out.write(STAR_ENTER_RASTER);
+            return;
+        }
+        out.write(CENTER_ALIGN);
+        if (encoding == ImageEncoding.ESC_BIT_IMAGE_8 || encoding == ImageEncoding.ESC_BIT_IMAGE_24) {
+            out.write(SET_LINE_SPACE_24);
+        }
+    }
+
+    /**
+     * Encodes a horizontal band of the image. Bands of ESC * images must be a
+     * multiple of the stripe height, except for the last one. With
+     * skipBlankRows, rows without dots are sent as ESC J feeds instead; Star
+     * raster always sends them as vertical moves.
+     */
+    public static void writeBand(MonochromeBitmap band, ImageEncoding encoding, boolean skipBlankRows,
+                                 OutputStream out) throws IOException {
+        switch (encoding) {
+            case ESC_BIT_IMAGE_8:
+                writeBitImage(band, 1, 8, skipBlankRows, out);
+                break;
+            case RASTER:
+                writeRaster(band, skipBlankRows, out);
+                break;
+            case GRAPHICS:
+                writeGraphics(band, skipBlankRows, out);
+                break;
+            case STAR_RASTER:
+                writeStarRaster(band, out);
+                break;
+            case ESC_BIT_IMAGE_24:
+            default:
+                writeBitImage(band, 33, 24, skipBlankRows, out);
+                break;
+        }
+    }
+
+    /**
+     * Drops the same number of blank columns on both sides, so the centered
+     * image keeps its position on the paper while every row gets shorter.
+     */
+    public static MonochromeBitmap cropMargins(MonochromeBitmap image) {
+        byte[] data = image.getData();
+        int bytesPerRow = image.getBytesPerRow();
+        byte[] columns = new byte[bytesPerRow];
+        for (int i = 0; i < data.length; i++) {
+            columns[i % bytesPerRow] |= data[i];
+        }
+        int first = 0;
+        while (first < bytesPerRow && columns[first] == 0) {
+            first++;
+        }
+        if (first == bytesPerRow) {
+            return image;
+        }
+        int last = bytesPerRow - 1;
+        while (columns[last] == 0) {
+            last--;
+        }
+        int left = first * 8 + Integer.numberOfLeadingZeros(columns[first] & 0xff) - 24;
+        int right = image.getWidth() - (last * 8 + 8 - Integer.numberOfTrailingZeros(columns[last] & 0xff));
+        int margin = Math.min(left, right);
+        if (margin <= 0) {
+            return image;
+        }
+        return image.cropColumns(margin, image.getWidth() - 2 * margin);
+    }
+
+    /**
+     * Restores text line spacing and flushes the image to the printer.
+     */
+    public static void writeFooter(ImageEncoding encoding, OutputStream out) throws IOException {
+        if (encoding == ImageEncoding.STAR_RASTER) {
+            out.write(STAR_QUIT_RASTER);
+            out.flush();
+            return;
+        }
+        out.write(SET_LINE_SPACE_32);
+        out.write(LINE_FEED);
+        out.flush();
+    }
+
+    /**
+     * ESC * m nL nH d1...dk, one stripe of column-major bytes per line feed.
+     * Stripes are encoded in parallel a window at a time and written in order.
+     */
+    private static void writeBitImage(final MonochromeBitmap image, int mode, final int stripeHeight,
+                                      boolean skipBlankRows, OutputStream out) throws IOException {
+        final int width = image.getWidth();
+        final int bytesPerColumn = stripeHeight / 8;
+        final int stripeSize = 5 + width * bytesPerColumn + 1;
+        int stripeCount = (image.getHeight() + stripeHeight - 1) / stripeHeight;
+        final byte[] window = new byte[Math.min(stripeCount, STRIPES_PER_WINDOW) * stripeSize];
+        for (int offset = 0; offset < window.length; offset += stripeSize) {
+            window[offset] = ESC;
+            window[offset + 1] = 0x2A;
+            window[offset + 2] = (byte) mode;
+            window[offset + 3] = (byte) (width & 0xff);
+            window[offset + 4] = (byte) ((width >> 8) & 0xff);
+            window[offset + stripeSize - 1] = LINE_FEED[0];
+        }
+
+        final boolean[] blank = new boolean[STRIPES_PER_WINDOW];
+        int pendingFeed = 0;
+        for (int first = 0; first < stripeCount; first += STRIPES_PER_WINDOW) {
+            final int windowStart = first;
+            int stripes = Math.min(STRIPES_PER_WINDOW, stripeCount - first);
+            for (int s = 0; s < stripes; s++) {
+                int y = (first + s) * stripeHeight;
+                blank[s] = skipBlankRows && image.isBlank(y, Math.min(y + stripeHeight, image.getHeight()));
+            }
+            ParallelRaster.forEachRange(stripes, STRIPES_PER_TASK, new ParallelRaster.RangeBody() {
+                @Override
+                public void apply(int from, int to) {
+                    for (int s = from; s < to; s++) {
+                        if (blank[s]) {
+                            continue;
+                        }
+                        BitTranspose.transposeStripe(image, (windowStart + s) * stripeHeight, bytesPerColumn,
+                                window, s * stripeSize + 5);
+                    }
+                }
+            });
+            for (int s = 0; s < stripes; ) {
+                if (blank[s]) {
+                    pendingFeed += STRIPE_ADVANCE;
+                    s++;
+                    continue;
+                }
+                int end = s + 1;
+                while (end < stripes && !blank[end]) {
+                    end++;
+                }
+                writeFeed(pendingFeed, out);
+                pendingFeed = 0;
+                out.write(window, s * stripeSize, (end - s) * stripeSize);
+                s = end;
+            }
+        }
+        writeFeed(pendingFeed, out);
+    }
+
+    /**
+     * GS v 0 m xL xH yL yH d1...dk, the packed rows are sent as they are.
+     */
+    private static void writeRaster(final MonochromeBitmap image, boolean skipBlankRows, final OutputStream out)
+            throws IOException {
+        final int bytesPerRow = image.getBytesPerRow();
+        final byte[] header = new byte[8];
+        header[0] = GS;
+        header[1] = 0x76;
+        header[2] = 0x30;
+        header[3] = 0;
+        header[4] = (byte) (bytesPerRow & 0xff);
+        header[5] = (byte) ((bytesPerRow >> 8) & 0xff);
+        writeBlocks(image, MAX_BLOCK_HEIGHT, skipBlankRows, new BlockWriter() {
+            @Override
+            public void write(int y, int rows) throws IOException {
+                header[6] = (byte) (rows & 0xff);
+                header[7] = (byte) ((rows >> 8) & 0xff);
+                out.write(header);
+                out.write(image.getData(), y * bytesPerRow, rows * bytesPerRow);
+            }
+        }, out);
+    }
+
+    /**
+     * GS ( L fn 112 stores a block in the graphics print buffer, fn 50 prints it.
+     */
+    private static void writeGraphics(final MonochromeBitmap image, boolean skipBlankRows, final OutputStream out)
+            throws IOException {
+        int width = image.getWidth();
+        final int bytesPerRow = image.getBytesPerRow();
+        int blockHeight = Math.max(1, Math.min(MAX_BLOCK_HEIGHT, MAX_GRAPHICS_PAYLOAD / bytesPerRow));
+        final byte[] header = new byte[15];
+        header[0] = GS;
+        header[1] = 0x28;
+        header[2] = 0x4C;
+        header[5] = 0x30; // m
+        header[6] = 0x70; // fn 112
+        header[7] = 0x30; // monochrome
+        header[8] = 1; // bx
+        header[9] = 1; // by
+        header[10] = 0x31; // color 1
+        header[11] = (byte) (width & 0xff);
+        header[12] = (byte) ((width >> 8) & 0xff);
+        writeBlocks(image, blockHeight, skipBlankRows, new BlockWriter() {
+            @Override
+            public void write(int y, int rows) throws IOException {
+                int length = 10 + rows * bytesPerRow;
+                header[3] = (byte) (length & 0xff);
+                header[4] = (byte) ((length >> 8) & 0xff);
+                header[13] = (byte) (rows & 0xff);
+                header[14] = (byte) ((rows >> 8) & 0xff);
+                out.write(header);
+                out.write(image.getData(), y * bytesPerRow, rows * bytesPerRow);
+                out.write(PRINT_GRAPHICS);
+            }
+        }, out);
+    }
+
+    /**
+     * Star raster rows without their trailing white bytes. Each row goes out
+     * in whichever is shorter, counting the switch of compression mode: plain
+     * "b n1 n2 d1...dk" or the same with PackBits data. Runs of blank rows
+     * are merged into one "ESC * r Y n NUL" vertical move. Every band ends
+     * uncompressed, so bands can be written independently.
+     */
+    private static void writeStarRaster(MonochromeBitmap image, OutputStream out) throws IOException {
+        byte[] data = image.getData();
+        int bytesPerRow = image.getBytesPerRow();
+        byte[] packed = new byte[bytesPerRow + bytesPerRow / 128 + 2];
+        byte[] header = new byte[3];
+        header[0] = 0x62; // b
+        boolean compressed = false;
+        int pendingRows = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            int offset = y * bytesPerRow;
+            int length = bytesPerRow;
+            while (length > 0 && data[offset + length - 1] == 0) {
+                length--;
+            }
+            if (length == 0) {
+                pendingRows++;
+                continue;
+            }
+            writeStarMove(pendingRows, out);
+            pendingRows = 0;
+
+            int packedLength = packBits(data, offset, length, packed);
+            int plainCost = length + (compressed ? STAR_PLAIN.length : 0);
+            int packedCost = packedLength + (compressed ? 0 : STAR_PACKBITS.length);
+            if (packedCost < plainCost != compressed) {
+                compressed = !compressed;
+                out.write(compressed ? STAR_PACKBITS : STAR_PLAIN);
+            }
+            int size = compressed ? packedLength : length;
+            header[1] = (byte) (size & 0xff);
+            header[2] = (byte) ((size >> 8) & 0xff);
+            out.write(header);
+            if (compressed) {
+                out.write(packed, 0, packedLength);
+            } else {
+                out.write(data, offset, length);
+            }
+        }
+        if (compressed) {
+            out.write(STAR_PLAIN);
+        }
+        writeStarMove(pendingRows, out);
+    }
+
+    /**
+     * TIFF PackBits: a header n from 0 to 127 copies the next n + 1 bytes,
+     * from -127 to -1 repeats the next byte 1 - n times. Runs shorter than
+     * three bytes stay in the literal, where they cost no extra header.
+     *
+     * @return the number of bytes written to out, at most length + length / 128 + 1
+     */
+    static int packBits(byte[] data, int offset, int length, byte[] out) {
+        int end = offset + length;
+        int written = 0;
+        int literal = offset;
+        int i = offset;
+        while (i < end) {
+            int run = 1;
+            while (i + run < end && run < 128 && data[i + run] == data[i]) {
+                run++;
+            }
+            if (run < 3) {
+                i += run;
+                continue;
+            }
+            written = writeLiteral(data, literal, i, out, written);
+            out[written++] = (byte) (1 - run);
+            out[written++] = data[i];
+            i += run;
+            literal = i;
+        }
+        return writeLiteral(data, literal, end, out, written);
+    }
+
+    private static int writeLiteral(byte[] data, int from, int to, byte[] out, int written) {
+        while (from < to) {
+            int count = Math.min(128, to - from);
+            out[written++] = (byte) (count - 1);
+            System.arraycopy(data, from, out, written, count);
+            written += count;
+            from += count;
+        }
+        return written;
+    }
+
+    // ESC * r Y n NUL moves the paper n dots, n in ASCII decimal digits.
+    private static void writeStarMove(int dots, OutputStream out) throws IOException {
+        while (dots > 0) {
+            int n = Math.min(dots, 255);
+            out.write(new byte[]{ESC, 0x2A, 0x72, 0x59});
+            out.write(Integer.toString(n).getBytes("US-ASCII"));
+            out.write(0);
+            dots -= n;
+        }
+    }
+
+    private interface BlockWriter {
+        void write(int y, int rows) throws IOException;
+    }
+
+    /**
+     * Splits the image into blocks of at most maxRows rows. With skipBlankRows,
+     * runs of at least MIN_BLANK_ROWS empty rows become feeds between blocks.
+     */
+    private static void writeBlocks(MonochromeBitmap image, int maxRows, boolean skipBlankRows, BlockWriter writer,
+                                    OutputStream out) throws IOException {
+        int height = image.getHeight();
+        int y = 0;
+        while (y < height) {
+            if (skipBlankRows) {
+                int blankEnd = y;
+                while (blankEnd < height && image.isBlank(blankEnd, blankEnd + 1)) {
+                    blankEnd++;
+                }
+                if (blankEnd == height || blankEnd - y >= MIN_BLANK_ROWS) {
+                    writeFeed(blankEnd - y, out);
+                    y = blankEnd;
+                    continue;
+                }
+            }
+            int end = Math.min(y + maxRows, height);
+            if (skipBlankRows) {
+                int blankRun = 0;
+                for (int row = y; row < end; row++) {
+                    blankRun = image.isBlank(row, row + 1) ? blankRun + 1 : 0;
+                    if (blankRun == MIN_BLANK_ROWS) {
+                        end = row + 1 - blankRun;
+                        break;
+                    }
+                }
+            }
+            writer.write(y, end - y);
+            y = end;
+        }
+    }
+
+    // ESC J n advances the paper n dots without printing, at most 255 per command.
+    private static void writeFeed(int dots, OutputStream out) throws IOException {
+        while (dots > 0) {
+            int n = Math.min(dots, 255);
+            out.write(new byte[]{ESC, FEED_DOTS, (byte) n});
+            dots -= n;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.pinmi.react.printer.raster;
+
+import java.util.Arrays;
+
+/**
+ * Error-diffusion and ordered dithering from gray pixels into a packed
+ * {@link MonochromeBitmap}. The kernels read the luma from the low byte of
+ * opaque gray pixels as {@link ImageResampler} writes them; ARGB input is
+ * converted first. Everything runs on integers; error diffusion keeps two
+ * rolling error rows and allocates nothing per pixel.
+ */
+public class ImageDither {
+    public static final int DEFAULT_THRESHOLD = 127;
+    // Threshold value asking for Otsu's threshold computed from the image itself.
+    public static final int AUTO_THRESHOLD = -1;
+    private static final int ROWS_PER_TASK = 96;
+    private static final int PIXELS_PER_TASK = 64 * 1024;
+
+    private static final int[] BAYER_4X4 = thresholdMap(new int[]{
+            0, 8, 2, 10,
+            12, 4, 14, 6,
+            3, 11, 1, 9,
+            15, 7, 13, 5}, 4);
+    private static final int[] BAYER_8X8 = thresholdMap(new int[]{
+            0, 32, 8, 40, 2, 34, 10, 42,
+            48, 16, 56, 24, 50, 18, 58, 26,
+            12, 44, 4, 36, 14, 46, 6, 38,
+            60, 28, 52, 20, 62, 30, 54, 22,
+            3, 35, 11, 43, 1, 33, 9, 41,
+            51, 19, 59, 27, 49, 17, 57, 25,
+            15, 47, 7, 39, 13, 45, 5, 37,
+            63, 31, 55, 23, 61, 29, 53, 21}, 8);
+
+    private ImageDither() {
+    }
+
+    /**
+     * Rec. 601 luma in fixed point, composited over white paper so the
+     * anti-aliased edges of transparent images keep their share of ink.
+     */
+    public static int luminance(int argb) {
+        int a = argb >>> 24;
+        int r = (argb >> 16) & 0xff;
+        int g = (argb >> 8) & 0xff;
+        int b = argb & 0xff;
+        int luma = (299 * r + 587 * g + 114 * b) / 1000;
+        return 255 - a * (255 - luma) / 255;
+    }
+
+    /**
+     * Dithers ARGB pixels, which are replaced by their gray in one pass that
+     * also collects the histogram for {@link #AUTO_THRESHOLD}.
+     */
+    public static void dither(int[] pixels, int width, int height, DitherMode mode, int threshold,
+                              MonochromeBitmap out) {
+        int[] histogram = toGrayscale(pixels, width * height);
+        ditherGray(pixels, width, height, mode, threshold, histogram, out);
+    }
+
+    /**
+     * @param pixels    opaque gray pixels
+     * @param threshold luminance below which a dot is printed, or {@link #AUTO_THRESHOLD}.
+     *                  Ordered dithering shifts its threshold map by the same amount.
+     * @param histogram luminance histogram of the pixels for {@link #AUTO_THRESHOLD}, as collected
+     *                  while they were made gray; null counts it here
+     */
+    public static void ditherGray(int[] pixels, int width, int height, DitherMode mode, int threshold,
+                                  int[] histogram, MonochromeBitmap out) {
+        if (threshold == AUTO_THRESHOLD) {
+            threshold = otsuThreshold(histogram != null ? histogram : grayHistogram(pixels, width * height));
+        }
+        switch (mode) {
+            case FLOYD_STEINBERG:
+                floydSteinberg(pixels, width, height, threshold, out);
+                break;
+            case ATKINSON:
+                atkinson(pixels, width, height, threshold, out);
+                break;
+            case BAYER_4X4:
+                ordered(pixels, width, height, BAYER_4X4, 4, threshold, out);
+                break;
+            case BAYER_8X8:
+                ordered(pixels, width, height, BAYER_8X8, 8, threshold, out);
+                break;
+            case NONE:
+            default:
+                threshold(pixels, width, height, threshold, out);
+                break;
+        }
+    }
+
+    /**
+     * Replaces every pixel by its opaque gray and returns the luminance
+     * histogram, so the binarization afterwards reads luma that is already
+     * computed instead of making another pass over the colors.
+     */
+    public static int[] toGrayscale(final int[] pixels, int count) {
+        final int[] histogram = new int[256];
+        ParallelRaster.forEachRange(count, PIXELS_PER_TASK, new ParallelRaster.RangeBody() {
+            @Override
+            public void apply(int from, int to) {
+                int[] local = new int[256];
+                for (int i = from; i < to; i++) {
+                    int luma = luminance(pixels[i]);
+                    local[luma]++;
+                    pixels[i] = 0xff000000 | luma * 0x010101;
+                }
+                synchronized (histogram) {
+                    for (int v = 0; v < 256; v++) {
+                        histogram[v] += local[v];
+                    }
+                }
+            }
+        });
+        return histogram;
+    }
+
+    static int[] grayHistogram(int[] pixels, int count) {
+        int[] histogram = new int[256];
+        for (int i = 0; i < count; i++) {
+            histogram[pixels[i] & 0xff]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * Otsu's method: the split of the histogram with the largest variance
+     * between the dark and the light class. Returns a threshold in the sense
+     * of {@link #threshold}, so the dark class prints.
+     */
+    public static int otsuThreshold(int[] histogram) {
+        long total = 0;
+        long sum = 0;
+        for (int v = 0; v < 256; v++) {
+            total += histogram[v];
+            sum += (long) v * histogram[v];
+        }
+        long darkCount = 0;
+        long darkSum = 0;
+        double best = 0;
+        int threshold = DEFAULT_THRESHOLD;
+        for (int v = 0; v < 255; v++) {
+            darkCount += histogram[v];
+            darkSum += (long) v * histogram[v];
+            long lightCount = total - darkCount;
+            if (darkCount == 0 || lightCount == 0) {
+                continue;
+            }
+            double meanDelta = (double) darkSum / darkCount - (double) (sum - darkSum) / lightCount;
+            double between = (double) darkCount * lightCount * meanDelta * meanDelta;
+            if (between > best) {
+                best = between;
+                threshold = v + 1;
+            }
+        }
+        return threshold;
+    }
+
+    private static void threshold(final int[] pixels, final int width, int height, final int threshold,
+                                  MonochromeBitmap out) {
+        final byte[] bits = out.getData();
+        final int bytesPerRow = out.getBytesPerRow();
+        ParallelRaster.forEachRange(height, ROWS_PER_TASK, new ParallelRaster.RangeBody() {
+            @Override
+            public void apply(int from, int to) {
+                for (int row = from; row < to; row++) {
+                    int src = row * width;
+                    int dst = row * bytesPerRow;
+                    for (int col = 0; col < width; col += 8) {
+                        int end = Math.min(col + 8, width);
+                        int packed = 0;
+                        for (int x = col; x < end; x++) {
+                            if ((pixels[src + x] & 0xff) < threshold) {
+                                packed |= 0x80 >>> (x - col);
+                            }
+                        }
+                        bits[dst + (col >> 3)] = (byte) packed;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Thresholds an ink plane, one byte per pixel from 0 (paper) to 255 (full
+     * ink), with the same meaning of threshold as for ARGB pixels.
+     */
+    public static void thresholdInk(final byte[] ink, final int stride, final int width, int height, int threshold,
+                                    MonochromeBitmap out) {
+        final byte[] bits = out.getData();
+        final int bytesPerRow = out.getBytesPerRow();
+        // luminance < threshold, with luminance = 255 - ink
+        final int minInk = 255 - threshold;
+        ParallelRaster.forEachRange(height, ROWS_PER_TASK, new ParallelRaster.RangeBody() {
+            @Override
+            public void apply(int from, int to) {
+                for (int row = from; row < to; row++) {
+                    int src = row * stride;
+                    int dst = row * bytesPerRow;
+                    for (int col = 0; col < width; col += 8) {
+                        int end = Math.min(col + 8, width);
+                        int packed = 0;
+                        for (int x = col; x < end; x++) {
+                            if ((ink[src + x] & 0xff) > minInk) {
+                                packed |= 0x80 >>> (x - col);
+                            }
+                        }
+                        bits[dst + (col >> 3)] = (byte) packed;
+                    }
+                }
+            }
+        });
+    }
+
+    // Error rows are padded by two cells on each side so neighbours need no bounds checks.
+    private static void floydSteinberg(int[] pixels, int width, int height, int threshold, MonochromeBitmap out) {
+        byte[] bits = out.getData();
+        int bytesPerRow = out.getBytesPerRow();
+        int[] current = new int[width + 4];
+        int[] next = new int[width + 4];
+        for (int y = 0; y < height; y++) {
+            int src = y * width;
+            int dst = y * bytesPerRow;
+            int packed = 0;
+            for (int x = 0; x < width; x++) {
+                int value = (pixels[src + x] & 0xff) + (current[x + 2] >> 4);
+                int error;
+                if (value < threshold) {
+                    packed |= 0x80 >>> (x & 7);
+                    error = value;
+                } else {
+                    error = value - 255;
+                }
+                current[x + 3] += error * 7;
+                next[x + 1] += error * 3;
+                next[x + 2] += error * 5;
+                next[x + 3] += error;
+                if ((x & 7) == 7 || x == width - 1) {
+                    bits[dst + (x >> 3)] = (byte) packed;
+                    packed = 0;
+                }
+            }
+            int[] swap = current;
+            current = next;
+            next = swap;
+            Arrays.fill(next, 0);
+        }
+    }
+
+    // Atkinson spreads 6/8 of the error: two cells right, three below and one two rows down.
+    // The slot of the current row is free once read, so it carries the error for two rows down.
+    private static void atkinson(int[] pixels, int width, int height, int threshold, MonochromeBitmap out) {
+        byte[] bits = out.getData();
+        int bytesPerRow = out.getBytesPerRow();
+        int[] errors = new int[width + 4];
+        int[] below = new int[width + 4];
+        for (int y = 0; y < height; y++) {
+            int src = y * width;
+            int dst = y * bytesPerRow;
+            int packed = 0;
+            int carry1 = 0;
+            int carry2 = 0;
+            for (int x = 0; x < width; x++) {
+                int value = (pixels[src + x] & 0xff) + ((errors[x + 2] + carry1) >> 3);
+                int error;
+                if (value < threshold) {
+                    packed |= 0x80 >>> (x & 7);
+                    error = value;
+                } else {
+                    error = value - 255;
+                }
+                carry1 = carry2 + error;
+                carry2 = error;
+                errors[x + 2] = error;
+                below[x + 1] += error;
+                below[x + 2] += error;
+                below[x + 3] += error;
+                if ((x & 7) == 7 || x == width - 1) {
+                    bits[dst + (x >> 3)] = (byte) packed;
+                    packed = 0;
+                }
+            }
+            // Row y + 1 reads "below"; the error for row y + 2 waits in "errors" and becomes its base.
+            int[] swap = errors;
+            errors = below;
+            below = swap;
+        }
+    }
+
+    private static void ordered(final int[] pixels, final int width, int height, final int[] map, final int size,
+                                int threshold, MonochromeBitmap out) {
+        final int bias = DEFAULT_THRESHOLD - threshold;
+        final byte[] bits = out.getData();
+        final int bytesPerRow = out.getBytesPerRow();
+        final int mask = size - 1;
+        ParallelRaster.forEachRange(height, ROWS_PER_TASK, new ParallelRaster.RangeBody() {
+            @Override
+            public void apply(int from, int to) {
+                for (int y = from; y < to; y++) {
+                    int src = y * width;
+                    int dst = y * bytesPerRow;
+                    int mapRow = (y & mask) * size;
+                    int packed = 0;
+                    for (int x = 0; x < width; x++) {
+                        if ((pixels[src + x] & 0xff) + bias < map[mapRow + (x & mask)]) {
+                            packed |= 0x80 >>> (x & 7);
+                        }
+                        if ((x & 7) == 7 || x == width - 1) {
+                            bits[dst + (x >> 3)] = (byte) packed;
+                            packed = 0;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    // Scales Bayer indices to luminance thresholds centred in each level.
+    private static int[] thresholdMap(int[] indices, int size) {
+        int levels = size * size;
+        int[] map = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            map[i] = ((2 * indices[i] + 1) * 256) / (2 * levels);
+        }
+        return map;
+    }
+}
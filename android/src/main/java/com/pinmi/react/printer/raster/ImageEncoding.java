@@ -0,0 +1,36 @@
+package com.pinmi.react.printer.raster;
+
+import java.util.Locale;
+
+/**
+ * Command set used to send a monochrome image to the printer.
+ */
+public enum ImageEncoding {
+    /** ESC * 1: 8-dot double density stripes, for legacy printers. */
+    ESC_BIT_IMAGE_8,
+    /** ESC * 33: 24-dot double density stripes, understood by almost every ESC/POS printer. */
+    ESC_BIT_IMAGE_24,
+    /** GS v 0: row-major raster image, one header per block and no line feeds in between. */
+    RASTER,
+    /** GS ( L: store raster graphics in the print buffer, then print it. */
+    GRAPHICS,
+    /**
+     * Star line mode raster (ESC * r A ... ESC * r B) with compressed rows:
+     * each row is sent plain or PackBits coded, whichever is shorter, without
+     * its trailing white bytes, and blank rows become vertical moves.
+     */
+    STAR_RASTER;
+
+    public static final ImageEncoding DEFAULT = ESC_BIT_IMAGE_24;
+
+    public static ImageEncoding fromName(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("image encoding is missing");
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown image encoding: " + name);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.pinmi.react.printer.raster;
+
+import java.util.Arrays;
+
+/**
+ * Scales ARGB rows straight into target-size gray pixels for the dither
+ * kernels, so no scaled copy of the image is made. Every target pixel is
+ * the area-weighted mean luminance of the source pixels it covers; on
+ * enlargement that is the nearest source pixel.
+ */
+public class ImageResampler {
+    // Source rows fetched per read; bounds the scratch buffer for wide images.
+    private final static int ROWS_PER_READ = 16;
+
+    public interface RowSource {
+        /**
+         * Copies {@code count} source rows starting at {@code top} into {@code pixels}, row-major.
+         */
+        void readRows(int top, int count, int[] pixels);
+    }
+
+    private ImageResampler() {
+    }
+
+    public static void resample(RowSource source, int sourceWidth, int sourceHeight, int targetWidth,
+                                int targetHeight, int[] out) {
+        resample(source, sourceWidth, sourceHeight, targetWidth, targetHeight, out, null);
+    }
+
+    /**
+     * Fills {@code out} with {@code targetWidth * targetHeight} opaque gray pixels.
+     *
+     * @param histogram null, or 256 counters that receive the luminance histogram of the
+     *                  output for {@link ImageDither#ditherGray}, counted as each pixel is written
+     */
+    public static void resample(RowSource source, int sourceWidth, int sourceHeight, int targetWidth,
+                                int targetHeight, int[] out, int[] histogram) {
+        if (sourceWidth == targetWidth && sourceHeight == targetHeight) {
+            source.readRows(0, sourceHeight, out);
+            for (int i = 0, count = targetWidth * targetHeight; i < count; i++) {
+                int gray = ImageDither.luminance(out[i]);
+                out[i] = 0xff000000 | gray * 0x010101;
+                if (histogram != null) {
+                    histogram[gray]++;
+                }
+            }
+            return;
+        }
+        Spans columns = new Spans(sourceWidth, targetWidth);
+        Spans rows = new Spans(sourceHeight, targetHeight);
+        int chunkRows = Math.min(ROWS_PER_READ, sourceHeight);
+        int[] chunk = new int[sourceWidth * chunkRows];
+        int chunkTop = -chunkRows;
+        float[] line = new float[targetWidth];
+        float[] sum = new float[targetWidth];
+        int lineRow = -1;
+
+        for (int y = 0; y < targetHeight; y++) {
+            Arrays.fill(sum, 0f);
+            for (int k = rows.first[y], end = k + rows.count[y]; k < end; k++) {
+                int row = rows.index[k];
+                if (row != lineRow) {
+                    if (row >= chunkTop + chunkRows) {
+                        chunkTop = row;
+                        source.readRows(chunkTop, Math.min(chunkRows, sourceHeight - chunkTop), chunk);
+                    }
+                    filterLine(chunk, (row - chunkTop) * sourceWidth, columns, line);
+                    lineRow = row;
+                }
+                float weight = rows.weight[k];
+                for (int x = 0; x < targetWidth; x++) {
+                    sum[x] += weight * line[x];
+                }
+            }
+            for (int x = 0, i = y * targetWidth; x < targetWidth; x++, i++) {
+                int gray = Math.min(255, (int) (sum[x] + 0.5f));
+                out[i] = 0xff000000 | (gray << 16) | (gray << 8) | gray;
+                if (histogram != null) {
+                    histogram[gray]++;
+                }
+            }
+        }
+    }
+
+    private static void filterLine(int[] pixels, int offset, Spans columns, float[] line) {
+        for (int x = 0; x < line.length; x++) {
+            float value = 0;
+            for (int k = columns.first[x], end = k + columns.count[x]; k < end; k++) {
+                value += columns.weight[k] * ImageDither.luminance(pixels[offset + columns.index[k]]);
+            }
+            line[x] = value;
+        }
+    }
+
+    /**
+     * For every target pixel along one axis, the source pixels it overlaps and
+     * their share of its area.
+     */
+    private static class Spans {
+        final int[] first;
+        final int[] count;
+        final int[] index;
+        final float[] weight;
+
+        Spans(int sourceSize, int targetSize) {
+            double scale = (double) sourceSize / targetSize;
+            first = new int[targetSize];
+            count = new int[targetSize];
+            int capacity = targetSize * ((int) Math.ceil(scale) + 1);
+            index = new int[capacity];
+            weight = new float[capacity];
+            int k = 0;
+            for (int t = 0; t < targetSize; t++) {
+                double start = t * scale;
+                double end = Math.min(sourceSize, (t + 1) * scale);
+                first[t] = k;
+                for (int s = (int) start; s < end; s++) {
+                    double covered = Math.min(end, s + 1) - Math.max(start, s);
+                    if (covered <= 0) {
+                        continue;
+                    }
+                    index[k] = s;
+                    weight[k] = (float) (covered / (end - start));
+                    k++;
+                }
+                count[t] = k - first[t];
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.pinmi.react.printer.raster;
+
+import java.util.Locale;
+
+/**
+ * Where a logo is kept on the printer.
+ */
+public enum LogoStorage {
+    /** GS ( L NV graphics: survives power off, but every write wears the flash. */
+    NV(67, 69),
+    /**
+     * GS ( L download graphics: RAM, lost when the printer restarts. The logo is
+     * defined again after every new connection to the printer.
+     */
+    DOWNLOAD(83, 85),
+    /** FS q / FS p NV bit images of older models; defining one image redefines them all. */
+    LEGACY(0, 0);
+
+    final int defineFunction;
+    final int printFunction;
+
+    LogoStorage(int defineFunction, int printFunction) {
+        this.defineFunction = defineFunction;
+        this.printFunction = printFunction;
+    }
+
+    public static LogoStorage fromName(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("logo storage is missing");
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown logo storage: " + name);
+        }
+    }
+}
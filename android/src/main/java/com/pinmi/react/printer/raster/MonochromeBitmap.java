@@ -0,0 +1,75 @@
+package com.pinmi.react.printer.raster;
+
+/**
+ * A 1-bit-per-pixel image plane, packed row-major with the leftmost pixel of
+ * every byte in the most significant bit. A set bit means "print a dot".
+ */
+public class MonochromeBitmap {
+    private final int width;
+    private final int height;
+    private final int bytesPerRow;
+    private final byte[] data;
+
+    public MonochromeBitmap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.bytesPerRow = (width + 7) >> 3;
+        this.data = new byte[bytesPerRow * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getBytesPerRow() {
+        return bytesPerRow;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public boolean isBlack(int x, int y) {
+        return (data[y * bytesPerRow + (x >> 3)] & (0x80 >>> (x & 7))) != 0;
+    }
+
+    /**
+     * @return true when rows [fromRow, toRow) carry no dots
+     */
+    public boolean isBlank(int fromRow, int toRow) {
+        for (int i = fromRow * bytesPerRow, end = toRow * bytesPerRow; i < end; i++) {
+            if (data[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the columns [left, left + newWidth) into a new bitmap of the same height.
+     */
+    public MonochromeBitmap cropColumns(int left, int newWidth) {
+        MonochromeBitmap cropped = new MonochromeBitmap(newWidth, height);
+        int first = left >> 3;
+        int shift = left & 7;
+        int tail = newWidth & 7;
+        for (int y = 0; y < height; y++) {
+            int rowEnd = (y + 1) * bytesPerRow;
+            int src = y * bytesPerRow + first;
+            int dst = y * cropped.bytesPerRow;
+            for (int j = 0; j < cropped.bytesPerRow; j++, src++) {
+                int hi = data[src] & 0xff;
+                int lo = src + 1 < rowEnd ? data[src + 1] & 0xff : 0;
+                cropped.data[dst + j] = (byte) ((hi << shift) | (lo >>> (8 - shift)));
+            }
+            if (tail != 0) {
+                cropped.data[dst + cropped.bytesPerRow - 1] &= (byte) (0xff << (8 - tail));
+            }
+        }
+        return cropped;
+    }
+}
@@ -0,0 +1,60 @@
+package com.pinmi.react.printer.raster;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits independent image rows or stripes across a fork-join pool sized to
+ * the device's cores. Small images run inline on the calling thread.
+ */
+public class ParallelRaster {
+    private static ForkJoinPool sPool;
+
+    public interface RangeBody {
+        void apply(int from, int to);
+    }
+
+    private ParallelRaster() {
+    }
+
+    public static void forEachRange(int count, int grain, RangeBody body) {
+        if (count <= grain || Runtime.getRuntime().availableProcessors() < 2) {
+            body.apply(0, count);
+            return;
+        }
+        getPool().invoke(new RangeAction(0, count, Math.max(1, grain), body));
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if (sPool == null) {
+            sPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return sPool;
+    }
+
+    private static class RangeAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final RangeBody body;
+
+        RangeAction(int from, int to, int grain, RangeBody body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                body.apply(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeAction(from, mid, grain, body), new RangeAction(mid, to, grain, body));
+        }
+    }
+}
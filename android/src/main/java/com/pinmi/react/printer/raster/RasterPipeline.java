@@ -0,0 +1,125 @@
+package com.pinmi.react.printer.raster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The pixel-to-command pipeline on plain buffers: ARGB pixels in, ESC/POS
+ * bytes out. Nothing here depends on Android, so it runs and is tested on any
+ * JVM; the adapters only decode and scale the bitmap before calling it.
+ */
+public class RasterPipeline {
+    private final static int BAND_HEIGHT = 24;
+
+    private RasterPipeline() {
+    }
+
+    /**
+     * Binarizes row-major ARGB pixels and writes the complete image command.
+     * The pixel buffer is used as scratch space and may be modified.
+     */
+    public static void encode(int[] pixels, int width, int height, DitherMode ditherMode, int threshold,
+                              ImageEncoding encoding, boolean trimWhitespace, OutputStream out) throws IOException {
+        EscPosImageEncoder.encode(binarize(pixels, width, height, ditherMode, threshold), encoding, trimWhitespace,
+                out);
+    }
+
+    public static MonochromeBitmap binarize(int[] pixels, int width, int height, DitherMode ditherMode,
+                                            int threshold) {
+        MonochromeBitmap result = new MonochromeBitmap(width, height);
+        ImageDither.dither(pixels, width, height, ditherMode, threshold, result);
+        return result;
+    }
+
+    /**
+     * Binarizes gray pixels from {@link ImageResampler} with the histogram it
+     * collected, so nothing reads the pixels again before the dither kernel.
+     */
+    public static MonochromeBitmap binarizeGray(int[] pixels, int width, int height, DitherMode ditherMode,
+                                                int threshold, int[] histogram) {
+        MonochromeBitmap result = new MonochromeBitmap(width, height);
+        ImageDither.ditherGray(pixels, width, height, ditherMode, threshold, histogram, result);
+        return result;
+    }
+
+    /**
+     * Binarizes an ink plane as drawn by the Canvas path. A fixed threshold
+     * without dithering compares the bytes directly; the other modes expand
+     * them to gray pixels for the dither kernels.
+     */
+    public static void binarizeInk(byte[] ink, int stride, int width, int height, DitherMode ditherMode,
+                                   int threshold, MonochromeBitmap out) {
+        if (ditherMode == DitherMode.NONE && threshold != ImageDither.AUTO_THRESHOLD) {
+            ImageDither.thresholdInk(ink, stride, width, height, threshold, out);
+            return;
+        }
+        int[] pixels = new int[width * height];
+        int[] histogram = new int[256];
+        inkToGray(ink, stride, width, height, pixels, histogram);
+        ImageDither.ditherGray(pixels, width, height, ditherMode, threshold, histogram, out);
+    }
+
+    /**
+     * Expands an ink plane to opaque gray pixels, adding their luminance to histogram.
+     */
+    public static void inkToGray(byte[] ink, int stride, int width, int height, int[] pixels, int[] histogram) {
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int x = 0, src = y * stride; x < width; x++, src++, i++) {
+                int gray = 255 - (ink[src] & 0xff);
+                pixels[i] = 0xff000000 | (gray << 16) | (gray << 8) | gray;
+                histogram[gray]++;
+            }
+        }
+    }
+
+    /**
+     * Encodes gray pixels from {@link ImageResampler} in 24-row bands and
+     * takes every band whose pixels were encoded before from the cache. Side
+     * margins are kept, as for streamed images, because cropping depends on
+     * the whole image. Error diffusion carries into the next band, so those
+     * modes encode the whole image without the cache.
+     *
+     * @param histogram luminance histogram for {@link ImageDither#AUTO_THRESHOLD}, or null
+     */
+    public static void encodeBands(int[] pixels, int width, int height, DitherMode ditherMode, int threshold,
+                                   int[] histogram, ImageEncoding encoding, boolean skipBlankRows, BandCache cache,
+                                   OutputStream out) throws IOException {
+        EscPosImageEncoder.writeHeader(encoding, out);
+        if (ditherMode != DitherMode.NONE && ditherMode != DitherMode.BAYER_4X4
+                && ditherMode != DitherMode.BAYER_8X8) {
+            EscPosImageEncoder.writeBand(binarizeGray(pixels, width, height, ditherMode, threshold, histogram),
+                    encoding, skipBlankRows, out);
+            EscPosImageEncoder.writeFooter(encoding, out);
+            return;
+        }
+        if (threshold == ImageDither.AUTO_THRESHOLD) {
+            threshold = ImageDither.otsuThreshold(
+                    histogram != null ? histogram : ImageDither.grayHistogram(pixels, width * height));
+        }
+        // 24 rows keep ESC * stripes and the Bayer tiles aligned in every band.
+        long parameters = ((long) width << 40) ^ ((long) encoding.ordinal() << 32) ^ (ditherMode.ordinal() << 16)
+                ^ (threshold << 1) ^ (skipBlankRows ? 1 : 0);
+        int[] bandPixels = new int[width * BAND_HEIGHT];
+        MonochromeBitmap band = new MonochromeBitmap(width, BAND_HEIGHT);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        for (int y = 0; y < height; y += BAND_HEIGHT) {
+            int rows = Math.min(BAND_HEIGHT, height - y);
+            BandCache.Key key = BandCache.keyOf(pixels, y * width, rows * width, parameters);
+            byte[] bytes = cache.get(key);
+            if (bytes == null) {
+                System.arraycopy(pixels, y * width, bandPixels, 0, rows * width);
+                if (rows != BAND_HEIGHT) {
+                    band = new MonochromeBitmap(width, rows);
+                }
+                ImageDither.ditherGray(bandPixels, width, rows, ditherMode, threshold, null, band);
+                encoded.reset();
+                EscPosImageEncoder.writeBand(band, encoding, skipBlankRows, encoded);
+                bytes = encoded.toByteArray();
+                cache.put(key, bytes);
+            }
+            out.write(bytes);
+        }
+        EscPosImageEncoder.writeFooter(encoding, out);
+    }
+}
@@ -0,0 +1,118 @@
+package com.pinmi.react.printer.raster;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Commands that keep an image in printer memory and print it by key, so a
+ * logo crosses the wire once instead of with every receipt.
+ */
+public class StoredGraphics {
+    private final static byte ESC = 0x1B;
+    private final static byte GS = 0x1D;
+    private final static byte FS = 0x1C;
+    private final static byte[] CENTER_ALIGN = {ESC, 0x61, 0x31};
+
+    // GS ( L carries its parameter length in two bytes, GS 8 L in four.
+    private final static int MAX_SHORT_LENGTH = 0xFFFF;
+    private final static int MAX_GRAPHICS_WIDTH = 8192;
+    private final static int MAX_GRAPHICS_HEIGHT = 2304;
+    // FS q counts both dimensions in units of 8 dots.
+    private final static int MAX_LEGACY_WIDTH = 1023 * 8;
+    private final static int MAX_LEGACY_HEIGHT = 288 * 8;
+
+    private StoredGraphics() {
+    }
+
+    /**
+     * Checks a GS ( L key: two characters from 32 to 126.
+     */
+    public static void checkKey(String key) {
+        if (key == null || key.length() != 2 || !isKeyCode(key.charAt(0)) || !isKeyCode(key.charAt(1))) {
+            throw new IllegalArgumentException("logo key must be two characters from ' ' to '~': " + key);
+        }
+    }
+
+    private static boolean isKeyCode(char c) {
+        return c >= 32 && c <= 126;
+    }
+
+    /**
+     * GS ( L fn 67 (NV) or fn 83 (download) in raster format, or GS 8 L when
+     * the image does not fit a two-byte length.
+     */
+    public static void writeDefine(MonochromeBitmap image, String key, LogoStorage storage, OutputStream out)
+            throws IOException {
+        if (storage == LogoStorage.LEGACY) {
+            throw new IllegalArgumentException("legacy logos are defined together with writeLegacyDefine");
+        }
+        checkKey(key);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width > MAX_GRAPHICS_WIDTH || height > MAX_GRAPHICS_HEIGHT) {
+            throw new IllegalArgumentException("logo is larger than " + MAX_GRAPHICS_WIDTH + " x "
+                    + MAX_GRAPHICS_HEIGHT + " dots");
+        }
+        int length = 11 + image.getData().length;
+        if (length <= MAX_SHORT_LENGTH) {
+            out.write(new byte[]{GS, 0x28, 0x4C, (byte) length, (byte) (length >> 8)});
+        } else {
+            out.write(new byte[]{GS, 0x38, 0x4C, (byte) length, (byte) (length >> 8), (byte) (length >> 16),
+                    (byte) (length >> 24)});
+        }
+        out.write(new byte[]{
+                0x30, (byte) storage.defineFunction, 0x30, (byte) key.charAt(0), (byte) key.charAt(1), 1,
+                (byte) width, (byte) (width >> 8), (byte) height, (byte) (height >> 8), 0x31});
+        out.write(image.getData());
+    }
+
+    /**
+     * GS ( L fn 69 (NV) or fn 85 (download), centered like other images.
+     */
+    public static void writePrint(String key, LogoStorage storage, OutputStream out) throws IOException {
+        if (storage == LogoStorage.LEGACY) {
+            throw new IllegalArgumentException("legacy logos are printed by number with writeLegacyPrint");
+        }
+        checkKey(key);
+        out.write(CENTER_ALIGN);
+        out.write(new byte[]{GS, 0x28, 0x4C, 6, 0, 0x30, (byte) storage.printFunction, (byte) key.charAt(0),
+                (byte) key.charAt(1), 1, 1});
+    }
+
+    /**
+     * FS q n [xL xH yL yH d1...dk]1...n replaces every NV bit image at once;
+     * the images are numbered from 1 in list order. Data is column-major like
+     * ESC *, with the top dot in the most significant bit.
+     */
+    public static void writeLegacyDefine(List<MonochromeBitmap> images, OutputStream out) throws IOException {
+        if (images.isEmpty() || images.size() > 255) {
+            throw new IllegalArgumentException("FS q defines 1 to 255 images");
+        }
+        out.write(new byte[]{FS, 0x71, (byte) images.size()});
+        for (MonochromeBitmap image : images) {
+            if (image.getWidth() > MAX_LEGACY_WIDTH || image.getHeight() > MAX_LEGACY_HEIGHT) {
+                throw new IllegalArgumentException("logo is larger than " + MAX_LEGACY_WIDTH + " x "
+                        + MAX_LEGACY_HEIGHT + " dots");
+            }
+            int xBytes = image.getBytesPerRow();
+            int yBytes = (image.getHeight() + 7) / 8;
+            out.write(new byte[]{(byte) xBytes, (byte) (xBytes >> 8), (byte) yBytes, (byte) (yBytes >> 8)});
+            // Columns past the image width stay blank.
+            byte[] columns = new byte[xBytes * 8 * yBytes];
+            BitTranspose.transposeStripe(image, 0, yBytes, columns, 0);
+            out.write(columns);
+        }
+    }
+
+    /**
+     * FS p n m in normal size, centered like other images.
+     */
+    public static void writeLegacyPrint(int number, OutputStream out) throws IOException {
+        if (number < 1 || number > 255) {
+            throw new IllegalArgumentException("legacy logo number must be from 1 to 255");
+        }
+        out.write(CENTER_ALIGN);
+        out.write(new byte[]{FS, 0x70, (byte) number, 0});
+    }
+}
@@ -0,0 +1,26 @@
+package com.pinmi.react.printer.adapter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Print size and subsampling decisions of {@link BitmapDecoder}.
+ */
+public class BitmapDecoderTest {
+
+    @Test
+    public void printSizeKeepsUnrequestedSourceDimension() {
+        assertEquals(384, BitmapDecoder.printSize(384, 800));
+        assertEquals(3000, BitmapDecoder.printSize(0, 3000));
+    }
+
+    @Test
+    public void sampleSizeCoversBothPrintDimensions() {
+        // 800 x 3000 printed 384 wide keeps its 3000 rows, so it cannot be subsampled.
+        assertEquals(1, BitmapDecoder.sampleSize(800, 3000, 384, BitmapDecoder.printSize(0, 3000)));
+        assertEquals(2, BitmapDecoder.sampleSize(800, 3000, 384, 1000));
+        assertEquals(4, BitmapDecoder.sampleSize(1600, 1600, 384, 384));
+        assertEquals(1, BitmapDecoder.sampleSize(400, 3000, 384, 3000));
+    }
+}
@@ -0,0 +1,45 @@
+package com.pinmi.react.printer.adapter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trips of {@link DiskImageCache} entries in a temporary directory.
+ */
+public class DiskImageCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepsValidatorsWithThePayload() throws Exception {
+        DiskImageCache cache = new DiskImageCache(folder.getRoot(), 1024);
+        cache.put("url:logo", new CachedPayload(new byte[]{1, 2, 3}, "\"v1\"", null, 42));
+        cache.put("base64:logo", new CachedPayload(new byte[]{4}, null, null, 7));
+
+        CachedPayload entry = cache.get("url:logo");
+        assertArrayEquals(new byte[]{1, 2, 3}, entry.payload);
+        assertEquals("\"v1\"", entry.etag);
+        assertNull(entry.lastModified);
+        assertEquals(42, entry.checkedAt);
+        assertNull(cache.get("base64:logo").etag);
+        assertNull(cache.get("url:other"));
+    }
+
+    @Test
+    public void skipsUnfinishedFiles() throws Exception {
+        DiskImageCache cache = new DiskImageCache(folder.getRoot(), 1024);
+        cache.put("url:logo", new CachedPayload(new byte[10], null, null, 0));
+        try (FileOutputStream leftover = new FileOutputStream(new File(folder.getRoot(), "abc.bin.tmp"))) {
+            leftover.write(new byte[100]);
+        }
+
+        assertEquals(1, cache.getEntryCount());
+        assertTrue(cache.getSize() < 100);
+    }
+}
@@ -0,0 +1,104 @@
+package com.pinmi.react.printer.adapter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link ImageFetcher} against a local HTTP stand-in.
+ */
+public class ImageFetcherTest {
+    private static final byte[] LOGO = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3, 4};
+
+    private HttpServer server;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/logo.png", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModifiedResponses.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                fullResponses.incrementAndGet();
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                exchange.sendResponseHeaders(200, LOGO.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(LOGO);
+                }
+            }
+        });
+        server.createContext("/missing.png", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    public void revalidatesWithEtag() throws Exception {
+        ImageFetcher fetcher = new ImageFetcher(1024);
+
+        assertArrayEquals(LOGO, fetcher.fetch(url("/logo.png")));
+        assertArrayEquals(LOGO, fetcher.fetch(url("/logo.png")));
+
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, notModifiedResponses.get());
+    }
+
+    @Test
+    public void skipsValidatorsForOversizedBodies() throws Exception {
+        ImageFetcher fetcher = new ImageFetcher(LOGO.length - 1);
+
+        fetcher.fetch(url("/logo.png"));
+        fetcher.fetch(url("/logo.png"));
+
+        assertEquals(2, fullResponses.get());
+        assertEquals(0, notModifiedResponses.get());
+    }
+
+    @Test
+    public void conditionalFetchReportsNotModified() throws Exception {
+        ImageFetcher fetcher = new ImageFetcher(1024);
+
+        ImageFetcher.Response first = fetcher.fetch(url("/logo.png"), null, null);
+        assertArrayEquals(LOGO, first.body);
+        assertEquals("\"v1\"", first.etag);
+        assertTrue(fetcher.fetch(url("/logo.png"), first.etag, first.lastModified).isNotModified());
+        assertFalse(fetcher.fetch(url("/logo.png"), "\"v0\"", null).isNotModified());
+    }
+
+    @Test(expected = IOException.class)
+    public void failsOnErrorStatus() throws Exception {
+        new ImageFetcher(1024).fetch(url("/missing.png"));
+    }
+}
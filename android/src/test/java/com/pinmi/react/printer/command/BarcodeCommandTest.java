@@ -0,0 +1,57 @@
+package com.pinmi.react.printer.command;
+
+import com.pinmi.react.printer.raster.MonochromeBitmap;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class BarcodeCommandTest {
+
+    @Test
+    public void writesCode128InCodeSetB() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BarcodeCommand("A1", BarcodeSymbology.CODE128, 80, 2, "below").writeNative(out);
+        byte[] expected = {
+                0x1B, 0x61, 0x31,
+                0x1D, 0x48, 0x02,
+                0x1D, 0x68, 80,
+                0x1D, 0x77, 0x02,
+                0x1D, 0x6B, 73, 4, '{', 'B', 'A', '1'};
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    public void writesEan13AsDigits() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BarcodeCommand("590123412345", BarcodeSymbology.fromName("ean13"), 50, 3, "none").writeNative(out);
+        byte[] bytes = out.toByteArray();
+        assertEquals(67, bytes[bytes.length - 14]);
+        assertEquals(12, bytes[bytes.length - 13]);
+    }
+
+    @Test
+    public void rasterizesModulesAtPrintSize() {
+        MonochromeBitmap image = new BarcodeCommand("590123412345", BarcodeSymbology.EAN13, 40, 2, "none")
+                .rasterize();
+        // EAN-13 is 95 modules wide and starts with a guard bar.
+        assertEquals(95 * 2, image.getWidth());
+        assertEquals(40, image.getHeight());
+        assertTrue(image.isBlack(0, 39));
+        assertTrue(image.isBlack(1, 0));
+        assertFalse(image.isBlack(2, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddItfLength() {
+        new BarcodeCommand("123", BarcodeSymbology.ITF, 40, 2, "none");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLowercaseCode39() {
+        new BarcodeCommand("abc", BarcodeSymbology.CODE39, 40, 2, "none");
+    }
+}
@@ -0,0 +1,61 @@
+package com.pinmi.react.printer.command;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CodePageTranscoderTest {
+
+    @Test
+    public void switchesTablesWhenTextLeavesThePage() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CodePageTranscoder transcoder = new CodePageTranscoder(
+                Arrays.asList(CodePage.CP437, CodePage.CP1252, CodePage.BIG5), out);
+        transcoder.write("A\u00e9\u20ac\u4f60\u00e9\u0e01");
+        transcoder.flush();
+        byte[] expected = {
+                'A',
+                28, 46, 27, 116, 0, (byte) 0x82,
+                27, 116, 16, (byte) 0x80,
+                28, 38, (byte) 0xA7, 0x41,
+                28, 46, 27, 116, 0, (byte) 0x82,
+                '?'};
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    public void keepsSinglePageWithoutCommands() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CodePageTranscoder transcoder = new CodePageTranscoder(Charset.forName("CP437"), out);
+        transcoder.write("\u00fc\u2591x\u20ac");
+        transcoder.flush();
+        assertArrayEquals(new byte[]{(byte) 0x81, (byte) 0xB0, 'x', '?'}, out.toByteArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTwoDoubleBytePages() {
+        new CodePageTranscoder(Arrays.asList(CodePage.CP437, CodePage.GB18030, CodePage.BIG5),
+                new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void encodesRunsLongerThanTheBuffer() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1023; i++) {
+            text.append('a');
+        }
+        // The pair straddles the end of the first chunk.
+        text.append("\ud83c\udf5c\u00e9");
+        Charset utf8 = Charset.forName("UTF-8");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CodePageTranscoder transcoder = new CodePageTranscoder(utf8, out);
+        transcoder.write(text);
+        transcoder.flush();
+        assertArrayEquals(text.toString().getBytes(utf8), out.toByteArray());
+    }
+}
@@ -0,0 +1,37 @@
+package com.pinmi.react.printer.command;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class MarkupCompilerTest {
+
+    private static byte[] compile(String text, String encoding, boolean cut, boolean beep, boolean tailingLine)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new MarkupCompiler(Charset.forName(encoding), cut, beep, tailingLine).compile(text, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void matchesExchangeText() throws IOException {
+        byte[] expected = {
+                27, 64, 27, 50,
+                27, 97, 1, 27, 33, 48, 28, 33, 12, 'T', 'o', 't', 'a', 'l', 27, 33, 0, 28, 33, 0, '\n',
+                27, 97, 0, 29, 33, 0, 27, 50,
+                27, 97, 2, 'x', '>', 'a',
+                10, 10, 10, 10, 10, 27, 105};
+        // Unknown tags and a trailing "<" only lose the "<" itself, as in EPToolkit.
+        assertArrayEquals(expected, compile("<CB>Total</CB>\n<R><x>a<", "UTF8", true, false, true));
+    }
+
+    @Test
+    public void appendsBeepAndEncodesText() throws IOException {
+        byte[] expected = {27, 64, 27, 50, (byte) 0xC4, (byte) 0xE3, 27, 66, 3, 2};
+        assertArrayEquals(expected, compile("\u4f60", "GBK", false, true, false));
+    }
+}
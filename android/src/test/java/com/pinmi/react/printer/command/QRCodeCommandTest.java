@@ -0,0 +1,58 @@
+package com.pinmi.react.printer.command;
+
+import com.pinmi.react.printer.raster.MonochromeBitmap;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class QRCodeCommandTest {
+
+    @Test
+    public void writesFunctionSequence() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new QRCodeCommand("AB", 6, "q", 2).writeNative(out);
+        byte[] expected = {
+                0x1B, 0x61, 0x31,
+                0x1D, 0x28, 0x6B, 0x04, 0x00, 0x31, 0x41, 0x32, 0x00,
+                0x1D, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x43, 0x06,
+                0x1D, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x45, 0x32,
+                0x1D, 0x28, 0x6B, 0x05, 0x00, 0x31, 0x50, 0x30, 'A', 'B',
+                0x1D, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x51, 0x30,
+                0x0A};
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    public void rasterizesModulesAtPrintSize() {
+        MonochromeBitmap image = new QRCodeCommand("https://example.com", 4, "M", 2).rasterize();
+        // Version 2 symbols are 25 modules wide.
+        assertEquals(25 * 4, image.getWidth());
+        assertEquals(25 * 4, image.getHeight());
+        // Finder pattern: a dark 7 x 7 module square in the top left corner, light inside its border.
+        assertTrue(image.isBlack(0, 0));
+        assertTrue(image.isBlack(6 * 4 + 3, 6 * 4 + 3));
+        assertFalse(image.isBlack(4, 4));
+        assertTrue(image.isBlack(2 * 4, 2 * 4));
+    }
+
+    @Test
+    public void rejectsInvalidArguments() {
+        for (Object[] args : Arrays.asList(
+                new Object[]{"", 4, "M", 2},
+                new Object[]{"x", 0, "M", 2},
+                new Object[]{"x", 17, "M", 2},
+                new Object[]{"x", 4, "X", 2},
+                new Object[]{"x", 4, "M", 3})) {
+            try {
+                new QRCodeCommand((String) args[0], (Integer) args[1], (String) args[2], (Integer) args[3]);
+                fail("accepted " + Arrays.toString(args));
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.pinmi.react.printer.command;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ReceiptTemplateTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static Map<String, Object> item(String name, double price) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("name", name);
+        item.put("price", price);
+        return item;
+    }
+
+    @Test
+    public void splicesFieldsAndSections() {
+        ReceiptTemplate template = ReceiptTemplate.compile(
+                "\u001b!0{{shop}}\u001b!\u0000\n{{#items}}{{name:6}}{{price:-5}}\n{{/items}}#{{order}}", UTF_8);
+        List<Object> items = new ArrayList<>();
+        items.add(item("Tea", 3));
+        items.add(item("Noodles", 12.5));
+        Map<String, Object> data = new HashMap<>();
+        data.put("shop", "Pho 24");
+        data.put("items", items);
+        data.put("order", 1042.0);
+
+        assertEquals("\u001b!0Pho 24\u001b!\u0000\nTea       3\nNoodle 12.5\n#1042",
+                new String(template.render(data), UTF_8));
+    }
+
+    @Test
+    public void missingFieldsAndSectionsRenderEmpty() {
+        ReceiptTemplate template = ReceiptTemplate.compile("a{{x}}b{{#more}}c{{/more}}", UTF_8);
+        assertEquals("ab", new String(template.render(new HashMap<String, Object>()), UTF_8));
+    }
+
+    @Test
+    public void padsByDisplayColumns() {
+        // Two CJK characters fill four columns, an accent takes none.
+        assertEquals("\u725b\u8089 ", ReceiptTemplate.pad("\u725b\u8089", 5));
+        assertEquals("  Cafe\u0301", ReceiptTemplate.pad("Cafe\u0301", -6));
+        // A wide character that does not fit is dropped whole and the column padded.
+        assertEquals("ab ", ReceiptTemplate.pad("ab\u725b", 3));
+        // Cuts keep surrogate pairs together.
+        assertEquals("\ud83c\udf5c ", ReceiptTemplate.pad("\ud83c\udf5c\ud83c\udf5c", 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnbalancedSections() {
+        ReceiptTemplate.compile("{{#items}}{{name}}", UTF_8);
+    }
+}
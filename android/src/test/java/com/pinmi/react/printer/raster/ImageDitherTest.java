@@ -0,0 +1,71 @@
+package com.pinmi.react.printer.raster;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Fixed-input checks of the dither kernels.
+ */
+public class ImageDitherTest {
+    private static final int BLACK = 0xff000000;
+    private static final int WHITE = 0xffffffff;
+    private static final int GRAY = 0xff808080;
+
+    private static MonochromeBitmap dither(int color, int width, int height, DitherMode mode) {
+        int[] pixels = new int[width * height];
+        Arrays.fill(pixels, color);
+        MonochromeBitmap out = new MonochromeBitmap(width, height);
+        ImageDither.dither(pixels, width, height, mode, ImageDither.DEFAULT_THRESHOLD, out);
+        return out;
+    }
+
+    private static int dots(MonochromeBitmap image) {
+        int dots = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (image.isBlack(x, y)) {
+                    dots++;
+                }
+            }
+        }
+        return dots;
+    }
+
+    @Test
+    public void errorDiffusionPrintsHalfOfMidGray() {
+        for (DitherMode mode : new DitherMode[]{DitherMode.FLOYD_STEINBERG, DitherMode.ATKINSON}) {
+            int dots = dots(dither(GRAY, 64, 64, mode));
+            assertTrue(mode + " printed " + dots, dots > 64 * 64 * 2 / 5 && dots < 64 * 64 * 3 / 5);
+        }
+    }
+
+    @Test
+    public void bayer4x4TilesMidGrayAsCheckerboard() {
+        MonochromeBitmap image = dither(GRAY, 8, 8, DitherMode.BAYER_4X4);
+        byte[] expected = {0x55, (byte) 0xaa, 0x55, (byte) 0xaa, 0x55, (byte) 0xaa, 0x55, (byte) 0xaa};
+        assertArrayEquals(expected, image.getData());
+    }
+
+    @Test
+    public void solidColorsStaySolid() {
+        for (DitherMode mode : DitherMode.values()) {
+            assertEquals(mode.toString(), 0, dots(dither(WHITE, 13, 9, mode)));
+            assertEquals(mode.toString(), 13 * 9, dots(dither(BLACK, 13, 9, mode)));
+        }
+    }
+
+    @Test
+    public void errorStaysInsideTheImage() {
+        for (DitherMode mode : DitherMode.values()) {
+            // 13 columns leave three padding bits per row that must stay blank.
+            MonochromeBitmap image = dither(0xff404040, 13, 9, mode);
+            for (int y = 0; y < image.getHeight(); y++) {
+                assertEquals(mode.toString(), 0, image.getData()[y * image.getBytesPerRow() + 1] & 0x07);
+            }
+            dither(GRAY, 1, 1, mode);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.pinmi.react.printer.raster;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Golden byte outputs of the pixel-to-command pipeline, run on a plain JVM.
+ */
+public class RasterPipelineTest {
+    private static final int BLACK = 0xff000000;
+    private static final int WHITE = 0xffffffff;
+    private static final int GRAY = 0xff808080;
+
+    // 3 x 2 pixels: dots at (0, 0) and (2, 1).
+    private static int[] corners() {
+        return new int[]{
+                BLACK, WHITE, WHITE,
+                WHITE, WHITE, BLACK};
+    }
+
+    private static String encode(int[] pixels, int width, int height, ImageEncoding encoding, boolean trim)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RasterPipeline.encode(pixels, width, height, DitherMode.NONE, ImageDither.DEFAULT_THRESHOLD, encoding, trim,
+                out);
+        return hex(out.toByteArray());
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(String.format("%02x", b & 0xff));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void escBitImage24() throws IOException {
+        assertEquals("1b 61 31 1b 33 18 "
+                        + "1b 2a 21 03 00 80 00 00 00 00 00 40 00 00 0a "
+                        + "1b 33 20 0a",
+                encode(corners(), 3, 2, ImageEncoding.ESC_BIT_IMAGE_24, false));
+    }
+
+    @Test
+    public void escBitImage8() throws IOException {
+        assertEquals("1b 61 31 1b 33 18 "
+                        + "1b 2a 01 03 00 80 00 40 0a "
+                        + "1b 33 20 0a",
+                encode(corners(), 3, 2, ImageEncoding.ESC_BIT_IMAGE_8, false));
+    }
+
+    @Test
+    public void raster() throws IOException {
+        assertEquals("1b 61 31 1d 76 30 00 01 00 02 00 80 20 1b 33 20 0a",
+                encode(corners(), 3, 2, ImageEncoding.RASTER, false));
+    }
+
+    @Test
+    public void graphics() throws IOException {
+        assertEquals("1b 61 31 "
+                        + "1d 28 4c 0c 00 30 70 30 01 01 31 03 00 02 00 80 20 "
+                        + "1d 28 4c 02 00 30 32 "
+                        + "1b 33 20 0a",
+                encode(corners(), 3, 2, ImageEncoding.GRAPHICS, false));
+    }
+
+    @Test
+    public void starRasterDropsTrailingWhiteAndBlankRows() throws IOException {
+        int[] pixels = new int[16 * 3];
+        Arrays.fill(pixels, WHITE);
+        pixels[0] = BLACK;
+        assertEquals("1b 2a 72 41 62 01 00 80 1b 2a 72 59 32 00 1b 2a 72 42",
+                encode(pixels, 16, 3, ImageEncoding.STAR_RASTER, true));
+        assertEquals("1b 2a 72 41 62 01 00 80 1b 2a 72 59 32 00 1b 2a 72 42",
+                encode(pixels, 16, 3, ImageEncoding.STAR_RASTER, false));
+    }
+
+    @Test
+    public void starRasterPacksRowsWhenShorter() throws IOException {
+        // A black 96 dot bar and one dot: 12 bytes of 0xff and 0x80.
+        int[] pixels = new int[104];
+        Arrays.fill(pixels, 0, 97, BLACK);
+        Arrays.fill(pixels, 97, 104, WHITE);
+        assertEquals("1b 2a 72 41 1b 2a 72 4d 32 00 62 04 00 f5 ff 00 80 1b 2a 72 4d 30 00 1b 2a 72 42",
+                encode(pixels, 104, 1, ImageEncoding.STAR_RASTER, false));
+    }
+
+    @Test
+    public void packBitsMixesRunsAndLiterals() {
+        byte[] row = {1, 2, 2, 3, 3, 3, 3, 4};
+        byte[] packed = new byte[row.length + 2];
+        int length = EscPosImageEncoder.packBits(row, 0, row.length, packed);
+        assertEquals("02 01 02 02 fd 03 00 04", hex(Arrays.copyOf(packed, length)));
+
+        byte[] noise = new byte[300];
+        new Random(3).nextBytes(noise);
+        byte[] worst = new byte[noise.length + noise.length / 128 + 2];
+        length = EscPosImageEncoder.packBits(noise, 0, noise.length, worst);
+        assertArrayEquals(noise, unpackBits(worst, length));
+    }
+
+    private static byte[] unpackBits(byte[] packed, int length) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < length; ) {
+            int n = packed[i++];
+            if (n >= 0) {
+                out.write(packed, i, n + 1);
+                i += n + 1;
+            } else {
+                for (int k = 0; k < 1 - n; k++) {
+                    out.write(packed[i]);
+                }
+                i++;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void trimmingCropsMarginsAndFeedsBlankRows() throws IOException {
+        // 24 x 10 pixels, a 4 dot wide bar in the middle of the first row only.
+        int[] pixels = new int[24 * 10];
+        Arrays.fill(pixels, WHITE);
+        for (int x = 10; x < 14; x++) {
+            pixels[x] = BLACK;
+        }
+        assertEquals("1b 61 31 1d 76 30 00 01 00 01 00 f0 1b 4a 09 1b 33 20 0a",
+                encode(pixels, 24, 10, ImageEncoding.RASTER, true));
+    }
+
+    @Test
+    public void thresholdDecidesGray() throws IOException {
+        int[] pixels = {GRAY, GRAY};
+        MonochromeBitmap light = RasterPipeline.binarize(pixels.clone(), 2, 1, DitherMode.NONE, 100);
+        MonochromeBitmap dark = RasterPipeline.binarize(pixels.clone(), 2, 1, DitherMode.NONE, 200);
+        assertEquals(0x00, light.getData()[0] & 0xff);
+        assertEquals(0xc0, dark.getData()[0] & 0xff);
+    }
+
+    @Test
+    public void transparentPixelsCompositeOverWhite() {
+        assertEquals(255, ImageDither.luminance(0x00000000));
+        assertEquals(127, ImageDither.luminance(0x80000000));
+        assertEquals(0, ImageDither.luminance(BLACK));
+        assertEquals(128, ImageDither.luminance(GRAY));
+    }
+
+    @Test
+    public void otsuSplitsBimodalHistogram() {
+        int[] histogram = new int[256];
+        histogram[40] = 100;
+        histogram[200] = 300;
+        int threshold = ImageDither.otsuThreshold(histogram);
+        assertTrue(threshold > 40 && threshold <= 200);
+    }
+
+    @Test
+    public void transposedStripeMatchesDots() {
+        MonochromeBitmap image = new MonochromeBitmap(21, 19);
+        Random random = new Random(7);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (random.nextBoolean()) {
+                    image.getData()[y * image.getBytesPerRow() + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                }
+            }
+        }
+        byte[] columns = new byte[image.getWidth() * 3];
+        BitTranspose.transposeStripe(image, 0, 3, columns, 0);
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < 24; y++) {
+                boolean dot = (columns[x * 3 + y / 8] & (0x80 >>> (y & 7))) != 0;
+                assertEquals(y < image.getHeight() && image.isBlack(x, y), dot);
+            }
+        }
+    }
+
+    @Test
+    public void resamplerAveragesCoveredPixels() {
+        final int[] source = {
+                BLACK, BLACK, WHITE, BLACK, WHITE, WHITE,
+                BLACK, BLACK, WHITE, WHITE, WHITE, WHITE};
+        int[] target = new int[3];
+        ImageResampler.resample(new ImageResampler.RowSource() {
+            @Override
+            public void readRows(int top, int count, int[] pixels) {
+                System.arraycopy(source, top * 6, pixels, 0, count * 6);
+            }
+        }, 6, 2, 3, 1, target);
+        assertEquals(0, ImageDither.luminance(target[0]));
+        assertEquals(191, ImageDither.luminance(target[1]));
+        assertEquals(255, ImageDither.luminance(target[2]));
+    }
+
+    @Test
+    public void resamplerCollectsHistogramOfItsOutput() {
+        final int[] source = {BLACK, GRAY, WHITE, 0x80000000};
+        ImageResampler.RowSource rows = new ImageResampler.RowSource() {
+            @Override
+            public void readRows(int top, int count, int[] pixels) {
+                System.arraycopy(source, top * 2, pixels, 0, count * 2);
+            }
+        };
+        int[] gray = new int[4];
+        int[] histogram = new int[256];
+        ImageResampler.resample(rows, 2, 2, 2, 2, gray, histogram);
+        assertEquals(1, histogram[0]);
+        assertEquals(1, histogram[127]);
+        assertEquals(1, histogram[128]);
+        assertEquals(1, histogram[255]);
+
+        MonochromeBitmap expected = RasterPipeline.binarize(source.clone(), 2, 2, DitherMode.NONE,
+                ImageDither.AUTO_THRESHOLD);
+        MonochromeBitmap actual = RasterPipeline.binarizeGray(gray, 2, 2, DitherMode.NONE,
+                ImageDither.AUTO_THRESHOLD, histogram);
+        assertArrayEquals(expected.getData(), actual.getData());
+    }
+
+    @Test
+    public void inkPlaneMatchesGrayPixels() {
+        // Two rows of four pixels in a plane with a row stride of 8.
+        byte[] ink = {0, (byte) 200, (byte) 255, 100, 9, 9, 9, 9, (byte) 129, (byte) 128, 0, (byte) 255, 9, 9, 9, 9};
+        MonochromeBitmap direct = new MonochromeBitmap(4, 2);
+        RasterPipeline.binarizeInk(ink, 8, 4, 2, DitherMode.NONE, 127, direct);
+        assertEquals(0x60, direct.getData()[0] & 0xff);
+        assertEquals(0x90, direct.getData()[1] & 0xff);
+
+        int[] gray = new int[8];
+        for (int i = 0; i < 8; i++) {
+            int value = 255 - (ink[(i / 4) * 8 + i % 4] & 0xff);
+            gray[i] = 0xff000000 | value * 0x010101;
+        }
+        // reuseBands with canvasScaling encodes these expanded pixels.
+        int[] expanded = new int[8];
+        int[] histogram = new int[256];
+        RasterPipeline.inkToGray(ink, 8, 4, 2, expanded, histogram);
+        assertArrayEquals(gray, expanded);
+        assertEquals(2, histogram[255]);
+        assertEquals(1, histogram[55]);
+        MonochromeBitmap autoThreshold = new MonochromeBitmap(4, 2);
+        RasterPipeline.binarizeInk(ink, 8, 4, 2, DitherMode.NONE, ImageDither.AUTO_THRESHOLD, autoThreshold);
+        MonochromeBitmap expected = RasterPipeline.binarize(gray.clone(), 4, 2, DitherMode.NONE,
+                ImageDither.AUTO_THRESHOLD);
+        assertArrayEquals(expected.getData(), autoThreshold.getData());
+
+        for (DitherMode mode : new DitherMode[]{DitherMode.FLOYD_STEINBERG, DitherMode.ATKINSON,
+                DitherMode.BAYER_4X4}) {
+            MonochromeBitmap dithered = new MonochromeBitmap(4, 2);
+            RasterPipeline.binarizeInk(ink, 8, 4, 2, mode, 127, dithered);
+            expected = RasterPipeline.binarize(gray.clone(), 4, 2, mode, 127);
+            assertArrayEquals(mode.toString(), expected.getData(), dithered.getData());
+        }
+    }
+
+    @Test
+    public void bandCacheReusesUnchangedBands() throws IOException {
+        int width = 16;
+        int height = 72;
+        int[] ticket = new int[width * height];
+        Arrays.fill(ticket, WHITE);
+        for (int y = 0; y < height; y += 3) {
+            Arrays.fill(ticket, y * width, y * width + width / 2, BLACK);
+        }
+        int[] nextTicket = ticket.clone();
+        nextTicket[30 * width + 12] = BLACK;
+
+        BandCache cache = new BandCache(1 << 16);
+        RasterPipeline.encodeBands(ticket.clone(), width, height, DitherMode.NONE, 127, null,
+                ImageEncoding.ESC_BIT_IMAGE_24, true, cache, new ByteArrayOutputStream());
+        ByteArrayOutputStream reused = new ByteArrayOutputStream();
+        RasterPipeline.encodeBands(nextTicket.clone(), width, height, DitherMode.NONE, 127, null,
+                ImageEncoding.ESC_BIT_IMAGE_24, true, cache, reused);
+        // The pattern repeats every band, so only the first band and the changed one are encoded.
+        assertEquals(4, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        ByteArrayOutputStream fresh = new ByteArrayOutputStream();
+        RasterPipeline.encodeBands(nextTicket.clone(), width, height, DitherMode.NONE, 127, null,
+                ImageEncoding.ESC_BIT_IMAGE_24, true, new BandCache(1 << 16), fresh);
+        assertArrayEquals(fresh.toByteArray(), reused.toByteArray());
+    }
+}
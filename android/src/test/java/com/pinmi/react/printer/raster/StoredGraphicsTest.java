@@ -0,0 +1,70 @@
+package com.pinmi.react.printer.raster;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Golden bytes of the stored logo commands.
+ */
+public class StoredGraphicsTest {
+    private static final int BLACK = 0xff000000;
+    private static final int WHITE = 0xffffffff;
+
+    // 3 x 2 pixels: dots at (0, 0) and (2, 1).
+    private static MonochromeBitmap corners() {
+        return RasterPipeline.binarize(new int[]{
+                BLACK, WHITE, WHITE,
+                WHITE, WHITE, BLACK}, 3, 2, DitherMode.NONE, ImageDither.DEFAULT_THRESHOLD);
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(String.format("%02x", b & 0xff));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void definesAndPrintsNvGraphics() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StoredGraphics.writeDefine(corners(), "AB", LogoStorage.NV, out);
+        StoredGraphics.writePrint("AB", LogoStorage.NV, out);
+
+        assertEquals("1d 28 4c 0d 00 30 43 30 41 42 01 03 00 02 00 31 80 20"
+                + " 1b 61 31 1d 28 4c 06 00 30 45 41 42 01 01", hex(out.toByteArray()));
+    }
+
+    @Test
+    public void usesLongLengthForLargeGraphics() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StoredGraphics.writeDefine(new MonochromeBitmap(576, 1000), "AB", LogoStorage.DOWNLOAD, out);
+
+        // 11 + 72 * 1000 = 72011 = 0x1194b
+        assertEquals("1d 38 4c 4b 19 01 00 30 53 30 41 42 01 40 02 e8 03 31",
+                hex(out.toByteArray()).substring(0, 53));
+    }
+
+    @Test
+    public void definesLegacyImagesColumnMajor() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StoredGraphics.writeLegacyDefine(Collections.singletonList(corners()), out);
+        StoredGraphics.writeLegacyPrint(1, out);
+
+        assertEquals("1c 71 01 01 00 01 00 80 00 40 00 00 00 00 00"
+                + " 1b 61 31 1c 70 01 00", hex(out.toByteArray()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsKeysOutsideTheRange() {
+        StoredGraphics.checkKey("A\n");
+    }
+}
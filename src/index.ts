@@ -33,6 +33,133 @@ export interface PrinterImageOptions {
   paddingX?: number;
 }
 
+export type ImageEncoding =
+  | "ESC_BIT_IMAGE_8"
+  | "ESC_BIT_IMAGE_24"
+  | "RASTER"
+  | "GRAPHICS"
+  | "STAR_RASTER";
+
+export type LogoStorage = "nv" | "download" | "legacy";
+
+export type DitherMode =
+  | "NONE"
+  | "FLOYD_STEINBERG"
+  | "ATKINSON"
+  | "BAYER_4X4"
+  | "BAYER_8X8";
+
+/**
+ * Image options understood by the Android native modules
+ */
+export interface NativeImageOptions {
+  imageWidth?: number;
+  imageHeight?: number;
+  imageEncoding?: ImageEncoding;
+  dither?: DitherMode;
+  // decode and send tall images band by band
+  streaming?: boolean;
+  // crop blank side margins and feed blank rows instead of printing them
+  trimWhitespace?: boolean;
+  // luminance 0-255 below which a dot prints, or "auto" for Otsu's threshold
+  threshold?: number | "auto";
+  // scale and gray the image in one Canvas draw instead of in Java
+  canvasScaling?: boolean;
+  // encode in 24-row bands and reuse the bands of earlier images
+  reuseBands?: boolean;
+  // keep the image in printer memory under this key and print it by key later
+  logoKey?: string;
+  // "nv" by default; "download" logos are defined again after a reconnect
+  logoStorage?: LogoStorage;
+}
+
+export interface ImageCacheStats {
+  hits: number;
+  misses: number;
+  evictions: number;
+  entries: number;
+  size: number;
+  maxSize: number;
+  bandHits: number;
+  bandMisses: number;
+  // hits over lookups, 0-1
+  bandReuseRatio: number;
+  bandEntries: number;
+  bandSize: number;
+  diskEntries?: number;
+  diskSize?: number;
+}
+
+export type QRCodeErrorLevel = "L" | "M" | "Q" | "H";
+
+export interface QRCodeOptions {
+  // module size in dots, 1-16
+  size?: number;
+  errorLevel?: QRCodeErrorLevel;
+  model?: 1 | 2;
+}
+
+export type BarcodeSymbology = "UPC_A" | "EAN13" | "CODE39" | "ITF" | "CODE128";
+
+export interface BarcodeOptions {
+  // bar height in dots, 1-255
+  height?: number;
+  // module width in dots, 1-6
+  width?: number;
+  // where the human readable text is printed
+  hriPosition?: "none" | "above" | "below" | "both";
+}
+
+export type CodePage =
+  | "CP437"
+  | "CP850"
+  | "CP860"
+  | "CP863"
+  | "CP865"
+  | "CP1252"
+  | "CP866"
+  | "CP852"
+  | "CP858"
+  | "GB18030"
+  | "BIG5"
+  | "SHIFT_JIS";
+
+/**
+ * Android only: options of the native tag markup compiler
+ */
+export interface MarkupOptions {
+  // defaults: cut and tailingLine on, beep off, UTF8
+  beep?: boolean;
+  cut?: boolean;
+  tailingLine?: boolean;
+  encoding?: string;
+  // printer tables in order of preference, replaces encoding;
+  // at most one of GB18030, BIG5 and SHIFT_JIS
+  codePages?: CodePage[];
+}
+
+/**
+ * Font of text rendered to an image on the device
+ */
+export interface TextImageStyle {
+  family?: string;
+  // text size in dots
+  size?: number;
+  bold?: boolean;
+  italic?: boolean;
+  // physical side of the paper, also for right-to-left text
+  align?: "left" | "center" | "right";
+}
+
+/**
+ * Android only: native commands a printer supports
+ */
+export interface PrinterCapabilities {
+  qrCode?: boolean;
+  // symbologies printed natively, the others are rasterized
+  barcodes?: BarcodeSymbology[];
+}
+
 export interface IUSBPrinter {
   device_name: string;
   vendor_id: number;
@@ -106,6 +233,150 @@ const textPreprocessingIOS = (text: string, canCut = true, beep = true) => {
   };
 };
 
+/**
+ * Android only: native features shared by the USB, BLE and Net modules
+ */
+const androidPrinter = (printer: any) => ({
+  /**
+   * image url with native image options
+   * @param imgUrl
+   * @param opts
+   */
+  printImageWithOptions: (imgUrl: string, opts: NativeImageOptions = {}): void =>
+    printer.printImageDataWithOptions(imgUrl, opts, (error: Error) =>
+      console.warn(error)
+    ),
+  /**
+   * base 64 string with native image options
+   * @param Base64
+   * @param opts
+   */
+  printImageBase64WithOptions: (
+    Base64: string,
+    opts: NativeImageOptions = {}
+  ): void =>
+    printer.printImageBase64WithOptions(Base64, opts, (error: Error) =>
+      console.warn(error)
+    ),
+
+  getImageCacheStats: (): Promise<ImageCacheStats> =>
+    new Promise((resolve) =>
+      printer.getImageCacheStats((stats: ImageCacheStats) => resolve(stats))
+    ),
+
+  clearImageCache: (): void => printer.clearImageCache(),
+
+  /**
+   * download and encode images ahead of printing
+   * @param imgUrls
+   * @param opts
+   * @returns the number of prefetched images
+   */
+  prefetchImages: (
+    imgUrls: string[],
+    opts: PrinterImageOptions = {}
+  ): Promise<number> =>
+    new Promise((resolve, reject) =>
+      printer.prefetchImages(
+        imgUrls,
+        opts?.imageWidth ?? 0,
+        opts?.imageHeight ?? 0,
+        (count: number) => resolve(count),
+        (error: Error) => reject(error)
+      )
+    ),
+
+  /**
+   * native QR code, printed as an image when the printer has no qrCode capability
+   * @param data
+   * @param opts
+   */
+  printQRCode: (data: string, opts: QRCodeOptions = {}): void =>
+    printer.printQRCode(
+      data,
+      opts?.size ?? 6,
+      opts?.errorLevel ?? "M",
+      opts?.model ?? 2,
+      (error: Error) => console.warn(error)
+    ),
+
+  /**
+   * native barcode, printed as an image when the printer lacks the symbology
+   * @param data
+   * @param symbology
+   * @param opts
+   */
+  printBarcode: (
+    data: string,
+    symbology: BarcodeSymbology,
+    opts: BarcodeOptions = {}
+  ): void =>
+    printer.printBarcode(
+      data,
+      symbology,
+      opts?.height ?? 80,
+      opts?.width ?? 2,
+      opts?.hriPosition ?? "below",
+      (error: Error) => console.warn(error)
+    ),
+
+  /**
+   * text the printer has no font for, rendered and printed as an image
+   * @param text
+   * @param width printable width in dots
+   * @param style
+   */
+  printTextAsImage: (
+    text: string,
+    width: number,
+    style: TextImageStyle = {}
+  ): void =>
+    printer.printTextAsImage(text, style, width, (error: Error) =>
+      console.warn(error)
+    ),
+
+  /**
+   * compile a receipt layout once: `{{name}}`, `{{name:20}}` padded to 20
+   * columns, `{{name:-8}}` right aligned, `{{#items}}...{{/items}}` sections
+   * @param templateId
+   * @param template
+   * @param opts text encoding of the template and its values, UTF-8 by default
+   */
+  registerTemplate: (
+    templateId: string,
+    template: string,
+    opts: { encoding?: string } = {}
+  ): void =>
+    printer.registerTemplate(templateId, template, opts, (error: Error) =>
+      console.warn(error)
+    ),
+
+  /**
+   * print a registered template with the given field values
+   * @param templateId
+   * @param data
+   */
+  printTemplate: (templateId: string, data: Record<string, any> = {}): void =>
+    printer.printTemplate(templateId, data, (error: Error) =>
+      console.warn(error)
+    ),
+
+  /**
+   * the <B>, <C>, <CM> ... tags of printBill compiled on the device
+   * @param text
+   * @param opts
+   */
+  printMarkup: (text: string, opts: MarkupOptions = {}): void =>
+    printer.printMarkup(text, opts, (error: Error) => console.warn(error)),
+
+  /**
+   * print a logo stored earlier with the logoKey image option
+   * @param key
+   */
+  printLogo: (key: string): void =>
+    printer.printLogo(key, (error: Error) => console.warn(error)),
+});
+
 // const imageToBuffer = async (imagePath: string, threshold: number = 60) => {
 //   const buffer = await EPToolkit.exchange_image(imagePath, threshold);
 //   return buffer.toString("base64");
@@ -223,6 +494,35 @@ const USBPrinter = {
       console.warn(error)
     );
   },
+  /**
+   * Android only: default image encoding of a printer
+   */
+  setImageEncoding: (
+    vendorId: number,
+    productId: number,
+    encoding: ImageEncoding
+  ): void =>
+    RNUSBPrinter.setImageEncoding(
+      vendorId,
+      productId,
+      encoding,
+      (error: Error) => console.warn(error)
+    ),
+  /**
+   * Android only: native commands a printer supports
+   */
+  setPrinterCapabilities: (
+    vendorId: number,
+    productId: number,
+    capabilities: PrinterCapabilities
+  ): void =>
+    RNUSBPrinter.setPrinterCapabilities(
+      vendorId,
+      productId,
+      capabilities,
+      (error: Error) => console.warn(error)
+    ),
+  ...androidPrinter(RNUSBPrinter),
 };
 
 const BLEPrinter = {
@@ -387,6 +687,31 @@ const BLEPrinter = {
       );
     }
   },
+  /**
+   * Android only: default image encoding of a printer
+   */
+  setImageEncoding: (
+    inner_mac_address: string,
+    encoding: ImageEncoding
+  ): void =>
+    RNBLEPrinter.setImageEncoding(
+      inner_mac_address,
+      encoding,
+      (error: Error) => console.warn(error)
+    ),
+  /**
+   * Android only: native commands a printer supports
+   */
+  setPrinterCapabilities: (
+    inner_mac_address: string,
+    capabilities: PrinterCapabilities
+  ): void =>
+    RNBLEPrinter.setPrinterCapabilities(
+      inner_mac_address,
+      capabilities,
+      (error: Error) => console.warn(error)
+    ),
+  ...androidPrinter(RNBLEPrinter),
 };
 
 const NetPrinter = {
@@ -545,6 +870,28 @@ const NetPrinter = {
       );
     }
   },
+  /**
+   * Android only: default image encoding of a printer
+   */
+  setImageEncoding: (host: string, port: number, encoding: ImageEncoding): void =>
+    RNNetPrinter.setImageEncoding(host, port, encoding, (error: Error) =>
+      console.warn(error)
+    ),
+  /**
+   * Android only: native commands a printer supports
+   */
+  setPrinterCapabilities: (
+    host: string,
+    port: number,
+    capabilities: PrinterCapabilities
+  ): void =>
+    RNNetPrinter.setPrinterCapabilities(
+      host,
+      port,
+      capabilities,
+      (error: Error) => console.warn(error)
+    ),
+  ...androidPrinter(RNNetPrinter),
 };
 
 const NetPrinterEventEmitter =